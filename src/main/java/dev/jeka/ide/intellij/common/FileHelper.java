@@ -1,6 +1,8 @@
 package dev.jeka.ide.intellij.common;
 
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import lombok.SneakyThrows;
 
@@ -53,6 +55,14 @@ public class FileHelper {
         return virtualFile.getPath().startsWith(jekaDir.getPath());
     }
 
+    /**
+     * Returns the dir where the plugin can store data related to the specified project. This dir stands in the
+     * IDE system dir, so it is never shared nor committed.
+     */
+    public static Path getProjectSystemDir(Project project) {
+        return PathManager.getSystemDir().resolve("jeka").resolve(project.getLocationHash());
+    }
+
     public static String toUnixPath(String path) {
         if (path == null) {
             return null;
@@ -1,10 +1,16 @@
 package dev.jeka.ide.intellij.common;
 
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.tool.JkConstants;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Properties;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class JekaWrapperInfo {
@@ -13,4 +19,23 @@ public class JekaWrapperInfo {
         return Files.exists(moduleDir.resolve("jekaw.bat")) &&
                 Files.exists(moduleDir.resolve("jekaw"));
     }
+
+    /**
+     * Returns the Jeka version declared in the wrapper properties of the specified module, or <code>null</code>
+     * if none is declared (no wrapper or wrapper delegating to another module).
+     */
+    public static String getJekaVersion(Path moduleDir) {
+        Path wrapperProps = moduleDir.resolve(JkConstants.JEKA_DIR).resolve("wrapper").resolve("wrapper.properties");
+        if (!Files.exists(wrapperProps)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(wrapperProps)) {
+            properties.load(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String version = properties.getProperty("jeka.version");
+        return JkUtilsString.isBlank(version) ? null : version.trim();
+    }
 }
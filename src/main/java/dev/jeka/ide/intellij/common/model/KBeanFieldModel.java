@@ -0,0 +1,73 @@
+package dev.jeka.ide.intellij.common.model;
+
+import com.intellij.psi.PsiField;
+import com.intellij.psi.SmartPsiElementPointer;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.ide.intellij.common.PsiHelper;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable description of a KBean property. Properties whose type is not terminal have nested properties
+ * as children, named after their parent as <i>parent.child</i>.
+ * <p>
+ * Models describe a field regardless of where it is reached from, so the same children are shared by every
+ * property of the same type.
+ */
+@Value
+public class KBeanFieldModel {
+
+    String name;
+
+    String tooltipText;
+
+    String declaration;
+
+    List<String> acceptedValues;
+
+    /**
+     * Content of the <code>@JkDepSuggest</code> annotation of the field, if any.
+     */
+    @Nullable
+    PsiHelper.DependencySuggest depSuggest;
+
+    List<KBeanFieldModel> children;
+
+    SmartPsiElementPointer<PsiField> pointer;
+
+    public boolean isLeaf() {
+        return children.isEmpty();
+    }
+
+    /**
+     * Returns the leaf properties under this one, or this one if it is a leaf, keyed by their prefixed name.
+     * The specified prefixed name is the one of this property.
+     */
+    public Map<String, KBeanFieldModel> leaves(String prefixedName) {
+        Map<String, KBeanFieldModel> result = new LinkedHashMap<>();
+        if (isLeaf()) {
+            result.put(prefixedName, this);
+            return result;
+        }
+        children.forEach(child -> result.putAll(child.leaves(prefixedName + "." + child.name)));
+        return result;
+    }
+
+    /**
+     * Returns the prefixed name of the parent of the specified property, or an empty string for a top-level
+     * property.
+     */
+    public static String parentPrefixedName(String prefixedName) {
+        return prefixedName.contains(".") ? JkUtilsString.substringBeforeLast(prefixedName, ".") : "";
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
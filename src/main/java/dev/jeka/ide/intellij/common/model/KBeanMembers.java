@@ -0,0 +1,22 @@
+package dev.jeka.ide.intellij.common.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Immutable description of the methods, properties and nested KBeans of a KBean. As computing them resolves
+ * the type of each property recursively, they are computed only for KBeans actually displayed or completed.
+ */
+@Value
+public class KBeanMembers {
+
+    public static final KBeanMembers EMPTY = new KBeanMembers(List.of(), List.of(), List.of());
+
+    List<KBeanMethodModel> methods;
+
+    List<KBeanFieldModel> fields;
+
+    List<KBeanModel> nestedKBeans;
+
+}
@@ -0,0 +1,26 @@
+package dev.jeka.ide.intellij.common.model;
+
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.SmartPsiElementPointer;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+
+/**
+ * Immutable description of a KBean method invokable from the command line.
+ */
+@Value
+@EqualsAndHashCode(of = "name")
+public class KBeanMethodModel {
+
+    String name;
+
+    String tooltipText;
+
+    SmartPsiElementPointer<PsiMethod> pointer;
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -0,0 +1,47 @@
+package dev.jeka.ide.intellij.common.model;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.SmartPsiElementPointer;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Immutable description of a KBean, as computed from PSI by {@link dev.jeka.ide.intellij.engine.KBeanModelService}.
+ * It can be read from any thread without read action. The PSI class is only referenced through a pointer,
+ * for navigation. Members are computed on demand, see {@link KBeanMembers}.
+ */
+@Value
+@EqualsAndHashCode(of = "className")
+public class KBeanModel {
+
+    /**
+     * Names of KBeans to list after the others.
+     */
+    public static final List<String> UNPRIORIZEDS = JkUtilsIterable.listOf("nexus", "maven", "intellij",
+            "eclipse", "git", "scaffold");
+
+    String name;
+
+    String className;
+
+    String definition;
+
+    String tooltipText;
+
+    boolean local;
+
+    SmartPsiElementPointer<PsiClass> pointer;
+
+    public boolean isUnpriorized() {
+        return UNPRIORIZEDS.contains(name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
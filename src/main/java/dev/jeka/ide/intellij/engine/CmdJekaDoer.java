@@ -18,10 +18,10 @@ package dev.jeka.ide.intellij.engine;
 
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
-import com.intellij.execution.process.OSProcessHandler;
+import com.intellij.execution.process.KillableProcessHandler;
 import com.intellij.execution.process.ProcessAdapter;
 import com.intellij.execution.process.ProcessEvent;
-import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.notification.NotificationGroupManager;
 import com.intellij.notification.NotificationType;
@@ -29,6 +29,7 @@ import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.ModifiableModuleModel;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -36,11 +37,13 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ModuleRootModificationUtil;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.util.SlowOperations;
+import dev.jeka.core.api.system.JkLocator;
 import dev.jeka.core.api.system.JkProperties;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.api.utils.JkUtilsSystem;
@@ -48,7 +51,13 @@ import dev.jeka.core.tool.JkExternalToolApi;
 import dev.jeka.ide.intellij.common.FileHelper;
 import dev.jeka.ide.intellij.common.JdksHelper;
 import dev.jeka.ide.intellij.common.JekaDistributions;
+import dev.jeka.ide.intellij.common.JekaWrapperInfo;
 import dev.jeka.ide.intellij.common.ModuleHelper;
+import dev.jeka.ide.intellij.engine.daemon.JekaDaemonRegistry;
+import dev.jeka.ide.intellij.engine.telemetry.SyncPhase;
+import dev.jeka.ide.intellij.engine.telemetry.SyncTelemetry;
+import dev.jeka.ide.intellij.extension.JekaApplicationSettingsConfigurable;
+import dev.jeka.ide.intellij.extension.JekaConsole;
 import dev.jeka.ide.intellij.extension.JekaConsoleToolWindowFactory;
 import dev.jeka.ide.intellij.extension.action.OpenJekaConsoleAction;
 import dev.jeka.ide.intellij.extension.action.OpenManageDistributionsAction;
@@ -57,6 +66,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.file.Files;
@@ -72,6 +82,10 @@ public final class CmdJekaDoer {
 
     private static final Logger LOGGER = Logger.getInstance(CmdJekaDoer.class);
 
+    private static final long CANCEL_POLL_MILLIS = 200;
+
+    private static final long KILL_GRACE_MILLIS = 5000;
+
     private enum Stage {
         first, retry
     }
@@ -82,24 +96,17 @@ public final class CmdJekaDoer {
         return new CmdJekaDoer(project);
     }
 
-    public void generateIml(Path moduleDir, String qualifiedClassName, boolean clearConsole,
-                            @Nullable  Module existingModule, Runnable onFinish) {
-
-        Task.Backgroundable task = new Task.Backgroundable(project(existingModule), "Sync JeKa") {
-
-            @Override
-            public void run(@NotNull ProgressIndicator indicator) {
-
-                // Strangely, making a System.out.println seems to fix the issue of not sync module,
-                // when creating a new project from wizard
-                System.out.println("--------------------- generate iml for  module " + existingModule);
+    /**
+     * Generates the iml file of the specified module in the calling thread, blocking until the Jeka process
+     * (and the retry stage if needed) terminates. The specified <code>onFinish</code> runs on success only.
+     */
+    void generateImlSync(Path moduleDir, @Nullable String qualifiedClassName, @Nullable Module existingModule,
+                         Runnable onFinish) {
+        doGenerateIml(moduleDir, qualifiedClassName, false, existingModule, onFinish, Stage.first);
+    }
 
-                indicator.setIndeterminate(true);
-                indicator.setText("JeKa : synchronizing " + moduleDir.getFileName() + "...");
-                doGenerateIml(moduleDir, qualifiedClassName, clearConsole, existingModule, onFinish, Stage.first);
-            }
-        };
-        ProgressManager.getInstance().run(task);
+    public void clearConsole() {
+        JekaConsoleToolWindowFactory.getConsole(invokingProject).clear();
     }
 
     public void scaffoldModule(Path moduleDir,
@@ -139,7 +146,9 @@ public final class CmdJekaDoer {
                 setJekaJDKEnv(cmd, module.getProject(), module);
                 cmd.addParameters("-lri", "-dci", "-lst");
                 cmd.setWorkDirectory(modulePath.toFile());
-                start(cmd, true, () -> getView().print("Done", ConsoleViewContentType.NORMAL_OUTPUT), null);
+                SyncTelemetry telemetry = SyncTelemetry.start(project, module.getName(), "runtime-info");
+                start(cmd, true, () -> getView(modulePath).print("Done", ConsoleViewContentType.NORMAL_OUTPUT), null,
+                        true, telemetry);
             }
         };
         ProgressManager.getInstance().run(task);
@@ -153,17 +162,21 @@ public final class CmdJekaDoer {
                                        String jekaVersion,
                                        Module existingModule,
                                        String extraArgs) {
+        // The wrapper delegating to another one is only needed for scaffolding and sync, whatever their outcome
+        Runnable deleteWrapper = () -> {
+            if (wrapDelegate != null) {
+                FileHelper.deleteDir(moduleDir.resolve("jeka/wrapper"));
+            }
+        };
+        boolean[] syncRequested = new boolean[1];
         Runnable afterScaffold = () -> {
 
             // When creating new project, if we do nothing after iml generated, the new module
             // does not take in account the generated iml
-            Runnable afterGenerateIml = () -> refreshAfterIml(existingModule, moduleDir, null);
-            //Runnable afterGenerateIml = () -> {};
-
-            doGenerateIml(moduleDir, null, false, existingModule, afterGenerateIml, Stage.first);
-            if (wrapDelegate != null) {
-                FileHelper.deleteDir(moduleDir.resolve("jeka/wrapper"));
-            }
+            Runnable afterGenerateIml = () -> refreshAfterIml(existingModule, moduleDir, null, null);
+            JekaSyncQueue.getInstance(project(existingModule)).requestSync(moduleDir, existingModule, null,
+                    false, afterGenerateIml, deleteWrapper);
+            syncRequested[0] = true;
         };
         Runnable doCreateStructure = () -> {};
 
@@ -179,8 +192,24 @@ public final class CmdJekaDoer {
             structureCmd.setWorkDirectory(moduleDir.toFile());
             structureCmd.addParameters(JkUtilsString.translateCommandline(extraArgs));
             structureCmd.addParameters("-dci", "-ls=BRACE", "-lna", "-lri", "-ld", "-wc", "-lst");
-            doCreateStructure = () -> start(structureCmd, !createWrapper, afterScaffold, null);
+            // Not sent to a daemon : scaffolding writes files that can not be checked the way the iml is, and some
+            // Jeka versions would resolve them against the working dir of the daemon JVM.
+            doCreateStructure = () -> start(structureCmd, !createWrapper, afterScaffold, null, false,
+                    SyncTelemetry.start(project(existingModule), moduleName(moduleDir, existingModule), "scaffold"));
         }
+        try {
+            scaffold(moduleDir, createWrapper, wrapDelegate, jekaVersion, existingModule, doCreateStructure);
+        } finally {
+
+            // Scaffolding has failed or been cancelled before sync could be requested
+            if (createStructure && !syncRequested[0]) {
+                deleteWrapper.run();
+            }
+        }
+    }
+
+    private void scaffold(Path moduleDir, boolean createWrapper, Path wrapDelegate, String jekaVersion,
+                          Module existingModule, Runnable doCreateStructure) {
         if (createWrapper) {
             GeneralCommandLine cmd = new GeneralCommandLine(jekaCmd(moduleDir, true, jekaVersion));
             cmd.addParameter("-kb=scaffold");   // avoid jeka.default.kbean that may be declared in parent modules
@@ -192,7 +221,9 @@ public final class CmdJekaDoer {
             }
             cmd.setWorkDirectory(moduleDir.toFile());
             cmd.addParameters("-dci", "-ls=BRACE", "-lna", "-lri", "-ld");
-            start(cmd, true, doCreateStructure, null);
+            SyncTelemetry telemetry = SyncTelemetry.start(project(existingModule),
+                    moduleName(moduleDir, existingModule), "scaffold-wrapper");
+            start(cmd, true, doCreateStructure, null, false, telemetry);
         } else {
             doCreateStructure.run();
         }
@@ -218,7 +249,7 @@ public final class CmdJekaDoer {
         }
         GeneralCommandLine cmd = new GeneralCommandLine(jekaCmd(moduleDir, false, null));
         setJekaJDKEnv(cmd, project, existingModule);
-        cmd.addParameters("intellij#iml", "-ld", "-cw", "-lst");
+        cmd.addParameters("intellij#iml", "-ld", "-cw", "-lst", "-ls=BRACE");
         Sdk sdk = getSuggestedSdk(moduleDir, project);
         if (sdk != null) {
             if (sdk.getName().contains(" ")) {
@@ -242,6 +273,8 @@ public final class CmdJekaDoer {
             cmd.addParameter("-kb=" + qualifiedClassName);  // if can not compile, the bean main not  e available cause not compiled
         }
 
+        SyncTelemetry telemetry = SyncTelemetry.start(project, moduleName(moduleDir, existingModule),
+                stage == Stage.first ? "iml" : "iml-retry").withPostProcessing();
         Runnable onFail = null;
         if (stage == Stage.first) {
 
@@ -268,8 +301,31 @@ public final class CmdJekaDoer {
             };
         }
 
-        Runnable onSuccess = () -> refreshAfterIml(existingModule, moduleDir, onFinish);
-        start(cmd, clearConsole, onSuccess, onFail);
+        SyncFileSnapshot snapshotBefore = SyncFileSnapshot.take(moduleDir, Paths.get(invokingProject.getBasePath()));
+        Runnable onSuccess = () -> {
+
+            // A retry ignores compilation errors, so its result must not be taken as up to date
+            if (stage == Stage.first) {
+                SyncFingerprintStore.getInstance(project).record(moduleDir, existingModule);
+            } else {
+                SyncFingerprintStore.getInstance(project).invalidate(moduleDir);
+            }
+            if (existingModule != null && JekaApplicationSettingsConfigurable.State.getInstance().projectModelSync) {
+                telemetry.measure(SyncPhase.MODEL_UPDATE,
+                        () -> ImlDeltaApplier.apply(existingModule, JkExternalToolApi.getImlFile(moduleDir)));
+            }
+            telemetry.measure(SyncPhase.VFS_REFRESH,
+                    () -> refreshAfterIml(existingModule, moduleDir, snapshotBefore, null));
+            telemetry.finish(true);
+            if (onFinish != null) {
+                onFinish.run();
+            }
+        };
+        if (JekaApplicationSettingsConfigurable.State.getInstance().inProcessSync
+                && startInProcess(cmd, moduleDir, clearConsole, onSuccess, onFail, telemetry)) {
+            return;
+        }
+        start(cmd, clearConsole, onSuccess, onFail, true, telemetry);
     }
 
     private Project project(@Nullable Module existingModule) {
@@ -279,17 +335,34 @@ public final class CmdJekaDoer {
         return invokingProject;
     }
 
-    private ConsoleView getView() {
-        return JekaConsoleToolWindowFactory.getConsoleView(invokingProject);
+    private static String moduleName(Path moduleDir, @Nullable Module existingModule) {
+        return existingModule != null ? existingModule.getName() : moduleDir.getFileName().toString();
+    }
+
+    // Each module has its own console, so output of modules synchronized concurrently does not interleave
+    private JekaConsole getView(Path moduleDir) {
+        return JekaConsoleToolWindowFactory.getModuleConsole(invokingProject, moduleDir);
     }
 
-    private void refreshAfterIml(Module existingModule, Path moduleDir, Runnable onFinish) {
+    // The returned console can not be closed until the operation is ended
+    private JekaConsole startOperationOnView(Path moduleDir) {
+        return JekaConsoleToolWindowFactory.startModuleOperation(invokingProject, moduleDir);
+    }
+
+    // When a snapshot taken before sync is supplied, only files and dirs written since are refreshed.
+    private void refreshAfterIml(Module existingModule, Path moduleDir, @Nullable SyncFileSnapshot snapshotBefore,
+                                 Runnable onFinish) {
         Project project = project(existingModule);
         if (existingModule == null && ModuleHelper.getModuleHavingRootDir(project, moduleDir) == null) {
            addModule(moduleDir);
         }
-        VirtualFile vModuleDir = VirtualFileManager.getInstance().findFileByNioPath(moduleDir);
-        VfsUtil.markDirtyAndRefresh(false, true, true, vModuleDir);
+        if (snapshotBefore != null) {
+            SyncFileSnapshot snapshotAfter = SyncFileSnapshot.take(moduleDir, Paths.get(invokingProject.getBasePath()));
+            snapshotAfter.refreshChangesSince(snapshotBefore);
+        } else {
+            VirtualFile vModuleDir = VirtualFileManager.getInstance().findFileByNioPath(moduleDir);
+            VfsUtil.markDirtyAndRefresh(false, true, true, vModuleDir);
+        }
         if (onFinish != null) {
             onFinish.run();
         }
@@ -305,53 +378,246 @@ public final class CmdJekaDoer {
         }
     }
 
-    private void start(GeneralCommandLine cmd, boolean clear, Runnable onSuccess, Runnable onFailure) {
-        OSProcessHandler handler;
-        JekaDistributions.getDefault();
+    private void start(GeneralCommandLine cmd, boolean clear, Runnable onSuccess, Runnable onFailure,
+                       boolean daemonCapable, SyncTelemetry telemetry) {
+        if (daemonCapable && JekaApplicationSettingsConfigurable.State.getInstance().useSyncDaemon
+                && startInDaemon(cmd, clear, onSuccess, onFailure, telemetry)) {
+            return;
+        }
+        ProgressManager.checkCanceled();
+        JekaConsole console = startOperationOnView(cmd.getWorkDirectory().toPath());
         try {
-            handler = new OSProcessHandler(cmd);
-            handler.addProcessListener(new ProcessAdapter() {
-
-                @Override
-                public void processTerminated(@NotNull ProcessEvent event) {
-                    if (event.getExitCode() != 0 && onFailure != null) {
-                        getView().print("\nSync has failed.\n",
-                                ConsoleViewContentType.ERROR_OUTPUT);
-                        onFailure.run();
-                    } else if (event.getExitCode() == 0 && onSuccess != null) {
-                        getView().print("\n", ConsoleViewContentType.NORMAL_OUTPUT);
-                        onSuccess.run();
+            KillableProcessHandler handler;
+            JekaDistributions.getDefault();
+            try {
+                handler = new KillableProcessHandler(cmd);
+                handler.setShouldKillProcessSoftly(true);
+                handler.addProcessListener(new ProcessAdapter() {
+
+                    @Override
+                    public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+                        if (outputType != ProcessOutputTypes.SYSTEM) {
+                            telemetry.onOutput(event.getText());
+                        }
                     }
+                });
+            } catch (ExecutionException e) {
+                logError(e, console);
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                logError(e, console);
+                throw e;
+            }
+            telemetry.processStarted("process", jekaVersion(cmd));
+            attachView(handler, clear, console);
+            waitForOrCancel(handler, console, telemetry);
+
+            // Callbacks run in the calling thread, so the retry stage stays under the current progress indicator
+            Integer exitCode = handler.getExitCode();
+            onTerminated(exitCode == null ? -1 : exitCode, onSuccess, onFailure, telemetry, console);
+        } finally {
+            console.endOperation();
+        }
+    }
+
+    // Waits for the process to terminate, or terminates its whole process tree if the current progress is cancelled.
+    private void waitForOrCancel(KillableProcessHandler handler, JekaConsole console, SyncTelemetry telemetry) {
+        ProgressIndicator indicator = ProgressManager.getGlobalProgressIndicator();
+        while (!handler.waitFor(CANCEL_POLL_MILLIS)) {
+            if (indicator != null && indicator.isCanceled()) {
+                handler.destroyProcess();  // soft kill first, so Jeka can release its locks
+                if (!handler.waitFor(KILL_GRACE_MILLIS)) {
+                    handler.killProcess();
                 }
+                printCancelled(console, telemetry);
+                throw new ProcessCanceledException();
+            }
+        }
+    }
+
+    private static void printCancelled(JekaConsole console, SyncTelemetry telemetry) {
+        console.print("\n", ConsoleViewContentType.SYSTEM_OUTPUT);
+        console.printSummary(telemetry.getOperation() + " cancelled.\n", ConsoleViewContentType.SYSTEM_OUTPUT);
+    }
+
+    // Returns false if no daemon can serve this command, so it has to be run in a regular process.
+    private boolean startInDaemon(GeneralCommandLine cmd, boolean clear, Runnable onSuccess, Runnable onFailure,
+                                  SyncTelemetry telemetry) {
+        Path workDir = cmd.getWorkDirectory().toPath();
+        Path distributionDir = distributionDir(cmd);
+        if (distributionDir == null) {
+            return false;
+        }
+        String jdkHome = cmd.getEnvironment().get("JEKA_JDK");
+        Path imlFile = generatesIml(cmd) ? JkExternalToolApi.getImlFile(workDir) : null;
+        long imlTimestamp = imlFile == null ? 0 : SyncFileSnapshot.lastModified(imlFile);
+        JekaConsole console = startOperationOnView(workDir);
+        try {
+            if (clear) {
+                console.clear();
+            }
+            ProgressIndicator indicator = ProgressManager.getGlobalProgressIndicator();
+            telemetry.processStarted("daemon", jekaVersion(cmd));
+            Integer exitCode = JekaDaemonRegistry.getInstance().execute(distributionDir,
+                    jdkHome == null ? null : Paths.get(jdkHome),
+                    workDir,
+                    cmd.getParametersList().getList(),
+                    line -> {
+                        telemetry.onOutput(line);
+                        console.print(line + "\n", ConsoleViewContentType.NORMAL_OUTPUT);
+                    },
+                    indicator);
+            if (indicator != null && indicator.isCanceled()) {
+                printCancelled(console, telemetry);
+                throw new ProcessCanceledException();
+            }
 
-            });
-        } catch (ExecutionException e) {
-            logError(e);
-            throw new RuntimeException(e);
-        } catch (RuntimeException e) {
-            logError(e);
-            throw e;
+            // Null means Jeka has not run at all. A daemon dying while running Jeka is reported as a failure,
+            // as running the command again may repeat its side effects.
+            if (exitCode == null) {
+                console.print("Jeka daemon unavailable, running a regular Jeka process.\n",
+                        ConsoleViewContentType.SYSTEM_OUTPUT);
+                return false;
+            }
+
+            // Some Jeka versions resolve paths against the working dir of the JVM rather than the passed dir.
+            if (exitCode == 0 && imlFile != null && SyncFileSnapshot.lastModified(imlFile) == imlTimestamp) {
+                console.print("Iml has not been generated by the daemon, running a regular Jeka process.\n",
+                        ConsoleViewContentType.SYSTEM_OUTPUT);
+                return false;
+            }
+            onTerminated(exitCode, onSuccess, onFailure, telemetry, console);
+            return true;
+        } finally {
+            console.endOperation();
+        }
+    }
+
+    private static boolean generatesIml(GeneralCommandLine cmd) {
+        return cmd.getParametersList().getList().contains("intellij#iml");
+    }
+
+    // Returns false if this command can not run in-process, so it has to be run in a daemon or a regular process.
+    private boolean startInProcess(GeneralCommandLine cmd, Path moduleDir, boolean clear, Runnable onSuccess,
+                                   Runnable onFailure, SyncTelemetry telemetry) {
+        if (!runsOnIdeJdk(cmd)) {
+            return false;
+        }
+        Path distributionDir = distributionDir(cmd);
+        if (distributionDir == null) {
+            return false;
+        }
+        Path jekaJar = distributionDir.resolve(JkLocator.getJekaJarPath().getFileName());
+        Path imlFile = JkExternalToolApi.getImlFile(moduleDir);
+        long imlTimestamp = SyncFileSnapshot.lastModified(imlFile);
+        ProgressManager.checkCanceled();
+        JekaConsole console = startOperationOnView(moduleDir);
+        try {
+            if (clear) {
+                console.clear();
+            }
+
+            // An in-process run can not be interrupted, so cancellation is only honored once it returns.
+            telemetry.processStarted("in-process", jekaVersion(cmd));
+            Integer exitCode = InProcessJekaEngine.getInstance().execute(jekaJar, moduleDir,
+                    cmd.getParametersList().getList(),
+                    text -> {
+                        telemetry.onOutput(text);
+                        console.print(text, ConsoleViewContentType.NORMAL_OUTPUT);
+                    });
+            if (exitCode == null) {
+                return false;
+            }
+            ProgressIndicator indicator = ProgressManager.getGlobalProgressIndicator();
+            if (indicator != null && indicator.isCanceled()) {
+                printCancelled(console, telemetry);
+                throw new ProcessCanceledException();
+            }
+
+            // Some Jeka versions resolve paths against the working dir of the JVM rather than the passed dir.
+            if (exitCode == 0 && SyncFileSnapshot.lastModified(imlFile) == imlTimestamp) {
+                console.print("Iml has not been generated in-process, running a regular Jeka process.\n",
+                        ConsoleViewContentType.SYSTEM_OUTPUT);
+                return false;
+            }
+            onTerminated(exitCode, onSuccess, onFailure, telemetry, console);
+            return true;
+        } finally {
+            console.endOperation();
+        }
+    }
+
+    // In-process runs use the JDK of the IDE, so a module declaring another JDK may get a different classpath
+    private static boolean runsOnIdeJdk(GeneralCommandLine cmd) {
+        String jdkHome = cmd.getEnvironment().get("JEKA_JDK");
+        if (jdkHome == null) {
+            return true;
+        }
+        try {
+            return Paths.get(jdkHome).toRealPath().equals(Paths.get(System.getProperty("java.home")).toRealPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // The Jeka version the specified command would run, without fetching any distribution
+    private static String jekaVersion(GeneralCommandLine cmd) {
+        Path exe = Paths.get(cmd.getExePath());
+        if (exe.getFileName().toString().startsWith("jekaw")) {
+            return JekaWrapperInfo.getJekaVersion(cmd.getWorkDirectory().toPath());
+        }
+        return exe.getParent().getFileName().toString();
+    }
+
+    // The distribution the specified command would run, or null if it can not be determined.
+    @Nullable
+    private static Path distributionDir(GeneralCommandLine cmd) {
+        Path exe = Paths.get(cmd.getExePath());
+        if (exe.getFileName().toString().startsWith("jekaw")) {
+            String version = JekaWrapperInfo.getJekaVersion(cmd.getWorkDirectory().toPath());
+            if (version == null) {
+                return null;
+            }
+            return JekaDistributions.fetchDistributionForVersion(version);
+        }
+        return exe.getParent();
+    }
+
+    private void onTerminated(int exitCode, Runnable onSuccess, Runnable onFailure, SyncTelemetry telemetry,
+                              JekaConsole console) {
+        if (exitCode != 0 || !telemetry.hasPostProcessing()) {
+            telemetry.finish(exitCode == 0);
+        }
+        if (exitCode != 0) {
+            console.print("\n", ConsoleViewContentType.ERROR_OUTPUT);
+            console.printSummary(telemetry.getOperation() + " has failed.\n", ConsoleViewContentType.ERROR_OUTPUT);
+        } else {
+            console.print("\n", ConsoleViewContentType.NORMAL_OUTPUT);
+            console.printSummary(telemetry.getOperation() + " succeeded.\n", ConsoleViewContentType.NORMAL_OUTPUT);
+        }
+        if (exitCode != 0 && onFailure != null) {
+            onFailure.run();
+        } else if (exitCode == 0 && onSuccess != null) {
+            onSuccess.run();
         }
-        attachView(handler, clear);
-        handler.waitFor();
     }
 
-    private void logError(Exception e) {
+    private static void logError(Exception e, JekaConsole console) {
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         PrintStream ps = new PrintStream(os);
         e.printStackTrace(ps);
         try {
             String output = os.toString("UTF8");
-            getView().print(output, ConsoleViewContentType.ERROR_OUTPUT);
+            console.print(output, ConsoleViewContentType.ERROR_OUTPUT);
         } catch (UnsupportedEncodingException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    private void attachView(OSProcessHandler handler, boolean clear) {
-        getView().attachToProcess(handler);
+    private static void attachView(KillableProcessHandler handler, boolean clear, JekaConsole console) {
+        console.attachToProcess(handler);
         if (clear) {
-            getView().clear();
+            console.clear();
         }
         handler.startNotify();
     }
@@ -0,0 +1,297 @@
+package dev.jeka.ide.intellij.engine;
+
+import com.intellij.openapi.components.PathMacroManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.projectRoots.ProjectJdkTable;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.roots.*;
+import com.intellij.openapi.roots.libraries.Library;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import dev.jeka.core.api.marshalling.xml.JkDomDocument;
+import dev.jeka.core.api.marshalling.xml.JkDomElement;
+import org.jetbrains.jps.model.java.JavaResourceRootType;
+import org.jetbrains.jps.model.java.JavaSourceRootType;
+import org.jetbrains.jps.model.module.JpsModuleSourceRootType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Applies an iml file generated by Jeka onto an existing module, as a delta on its root model : content roots,
+ * source and excluded folders, SDK, module dependencies and module libraries that did not change are left
+ * untouched, so their roots are not reindexed. All changes are committed in a single write action.
+ * <p>
+ * Once applied, the project model matches the iml on disk, so reloading it from the file is a no-op.
+ */
+final class ImlDeltaApplier {
+
+    private static final Logger LOGGER = Logger.getInstance(ImlDeltaApplier.class);
+
+    // order entry types this class knows how to match with the existing model
+    private static final Set<String> SUPPORTED_ENTRY_TYPES =
+            Set.of("jdk", "inheritedJdk", "sourceFolder", "module", "module-library");
+
+    private ImlDeltaApplier() {
+    }
+
+    private record FolderDescription(String url, JpsModuleSourceRootType<?> rootType) {
+    }
+
+    private record ContentDescription(String url, List<FolderDescription> sourceFolders, List<String> excludeUrls) {
+    }
+
+    private record EntryDescription(String type, String jdkName, String jdkType, String moduleName,
+                                    List<String> classesUrls, List<String> sourcesUrls,
+                                    DependencyScope scope, boolean exported) {
+    }
+
+    /**
+     * Applies the specified iml file to the specified module. Returns <code>false</code> if the iml could not be
+     * read or declares order entries of an unsupported type (e.g. project libraries), in which case the module is
+     * left unchanged and will be reloaded from the file.
+     */
+    static boolean apply(Module module, Path imlFile) {
+        if (!Files.exists(imlFile) || module.isDisposed()) {
+            return false;
+        }
+        List<ContentDescription> contents = new LinkedList<>();
+        List<EntryDescription> entries = new LinkedList<>();
+        try (InputStream is = Files.newInputStream(imlFile)) {
+            parse(JkDomDocument.parse(is), module, imlFile.getParent(), contents, entries);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Cannot read " + imlFile + ". Module " + module.getName() + " will be reloaded from file.", e);
+            return false;
+        }
+        for (EntryDescription entry : entries) {
+            if (!SUPPORTED_ENTRY_TYPES.contains(entry.type)) {
+                LOGGER.info("Order entry of type '" + entry.type + "' in " + imlFile + ". Module "
+                        + module.getName() + " will be reloaded from file.");
+                return false;
+            }
+        }
+        ModuleRootModificationUtil.updateModel(module, model -> {
+            applySdk(model, entries);
+            applyContents(model, contents);
+            applyOrderEntries(model, entries);
+        });
+        return true;
+    }
+
+    private static void parse(JkDomDocument doc, Module module, Path imlDir, List<ContentDescription> contents,
+                              List<EntryDescription> entries) {
+        PathMacroManager macroManager = PathMacroManager.getInstance(module);
+        for (JkDomElement contentEl : doc.root().xPath("component/content")) {
+            List<FolderDescription> sourceFolders = new LinkedList<>();
+            for (JkDomElement folderEl : contentEl.xPath("sourceFolder")) {
+                sourceFolders.add(new FolderDescription(url(folderEl, macroManager, imlDir), rootType(folderEl)));
+            }
+            List<String> excludeUrls = contentEl.xPath("excludeFolder").stream()
+                    .map(el -> url(el, macroManager, imlDir))
+                    .collect(Collectors.toList());
+            contents.add(new ContentDescription(url(contentEl, macroManager, imlDir), sourceFolders, excludeUrls));
+        }
+        for (JkDomElement entryEl : doc.root().xPath("component/orderEntry")) {
+            String scope = attribute(entryEl, "scope");
+            entries.add(new EntryDescription(
+                    attribute(entryEl, "type"),
+                    attribute(entryEl, "jdkName"),
+                    attribute(entryEl, "jdkType"),
+                    attribute(entryEl, "module-name"),
+                    rootUrls(entryEl, "library/CLASSES/root", macroManager, imlDir),
+                    rootUrls(entryEl, "library/SOURCES/root", macroManager, imlDir),
+                    scope.isEmpty() ? DependencyScope.COMPILE : DependencyScope.valueOf(scope),
+                    entryEl.getW3cElement().hasAttribute("exported")));
+        }
+    }
+
+    private static void applySdk(ModifiableRootModel model, List<EntryDescription> entries) {
+        for (EntryDescription entry : entries) {
+            if ("inheritedJdk".equals(entry.type)) {
+                if (!model.isSdkInherited()) {
+                    model.inheritSdk();
+                }
+                return;
+            }
+            if ("jdk".equals(entry.type)) {
+                Sdk sdk = ProjectJdkTable.getInstance().findJdk(entry.jdkName);
+                if (sdk == null) {
+                    model.setInvalidSdk(entry.jdkName, entry.jdkType);
+                } else if (model.isSdkInherited() || !sdk.equals(model.getSdk())) {
+                    model.setSdk(sdk);
+                }
+                return;
+            }
+        }
+    }
+
+    private static void applyContents(ModifiableRootModel model, List<ContentDescription> contents) {
+        Map<String, ContentEntry> existingEntries = new HashMap<>();
+        for (ContentEntry contentEntry : model.getContentEntries()) {
+            existingEntries.put(contentEntry.getUrl(), contentEntry);
+        }
+        for (ContentDescription content : contents) {
+            ContentEntry contentEntry = existingEntries.remove(content.url);
+            if (contentEntry == null) {
+                contentEntry = model.addContentEntry(content.url);
+            }
+            Set<FolderDescription> missingFolders = new LinkedHashSet<>(content.sourceFolders);
+            for (SourceFolder sourceFolder : contentEntry.getSourceFolders()) {
+                FolderDescription actual = new FolderDescription(sourceFolder.getUrl(), sourceFolder.getRootType());
+                if (!missingFolders.remove(actual)) {
+                    contentEntry.removeSourceFolder(sourceFolder);
+                }
+            }
+            for (FolderDescription folder : missingFolders) {
+                contentEntry.addSourceFolder(folder.url, folder.rootType);
+            }
+            Set<String> missingExcludes = new LinkedHashSet<>(content.excludeUrls);
+            for (ExcludeFolder excludeFolder : contentEntry.getExcludeFolders()) {
+                if (!missingExcludes.remove(excludeFolder.getUrl())) {
+                    contentEntry.removeExcludeFolder(excludeFolder);
+                }
+            }
+            missingExcludes.forEach(contentEntry::addExcludeFolder);
+        }
+        existingEntries.values().forEach(model::removeContentEntry);
+    }
+
+    private static void applyOrderEntries(ModifiableRootModel model, List<EntryDescription> entries) {
+        List<OrderEntry> remaining = new LinkedList<>(Arrays.asList(model.getOrderEntries()));
+        List<OrderEntry> ordered = new ArrayList<>();
+        for (EntryDescription entry : entries) {
+            OrderEntry orderEntry = switch (entry.type) {
+                case "jdk", "inheritedJdk" -> first(remaining, JdkOrderEntry.class);
+                case "sourceFolder" -> first(remaining, ModuleSourceOrderEntry.class);
+                case "module" -> moduleEntry(model, remaining, entry);
+                case "module-library" -> libraryEntry(model, remaining, entry);
+                default -> null;
+            };
+            if (orderEntry != null) {
+                remaining.remove(orderEntry);
+                ordered.add(orderEntry);
+            }
+        }
+        for (OrderEntry orderEntry : remaining) {
+            if (orderEntry instanceof JdkOrderEntry || orderEntry instanceof ModuleSourceOrderEntry) {
+                ordered.add(orderEntry);
+            } else {
+                model.removeOrderEntry(orderEntry);
+            }
+        }
+        OrderEntry[] orderedArray = ordered.toArray(OrderEntry[]::new);
+        if (!Arrays.equals(model.getOrderEntries(), orderedArray)) {
+            model.rearrangeOrderEntries(orderedArray);
+        }
+    }
+
+    private static OrderEntry moduleEntry(ModifiableRootModel model, List<OrderEntry> remaining,
+                                          EntryDescription entry) {
+        for (OrderEntry orderEntry : remaining) {
+            if (orderEntry instanceof ModuleOrderEntry moduleOrderEntry
+                    && entry.moduleName.equals(moduleOrderEntry.getModuleName())) {
+                applyScope(moduleOrderEntry, entry);
+                return moduleOrderEntry;
+            }
+        }
+        Module dependency = ModuleManager.getInstance(model.getProject()).findModuleByName(entry.moduleName);
+        ModuleOrderEntry added = dependency != null ? model.addModuleOrderEntry(dependency)
+                : model.addInvalidModuleEntry(entry.moduleName);
+        applyScope(added, entry);
+        return added;
+    }
+
+    private static OrderEntry libraryEntry(ModifiableRootModel model, List<OrderEntry> remaining,
+                                           EntryDescription entry) {
+        for (OrderEntry orderEntry : remaining) {
+            if (orderEntry instanceof LibraryOrderEntry libraryOrderEntry && libraryOrderEntry.isModuleLevel()
+                    && libraryOrderEntry.getLibrary() != null
+                    && entry.classesUrls.equals(
+                            List.of(libraryOrderEntry.getLibrary().getUrls(OrderRootType.CLASSES)))) {
+                Library library = libraryOrderEntry.getLibrary();
+                if (!entry.sourcesUrls.equals(List.of(library.getUrls(OrderRootType.SOURCES)))) {
+                    Library.ModifiableModel libraryModel = library.getModifiableModel();
+                    for (String url : library.getUrls(OrderRootType.SOURCES)) {
+                        libraryModel.removeRoot(url, OrderRootType.SOURCES);
+                    }
+                    entry.sourcesUrls.forEach(url -> libraryModel.addRoot(url, OrderRootType.SOURCES));
+                    libraryModel.commit();
+                }
+                applyScope(libraryOrderEntry, entry);
+                return libraryOrderEntry;
+            }
+        }
+        Library library = model.getModuleLibraryTable().createLibrary();
+        Library.ModifiableModel libraryModel = library.getModifiableModel();
+        entry.classesUrls.forEach(url -> libraryModel.addRoot(url, OrderRootType.CLASSES));
+        entry.sourcesUrls.forEach(url -> libraryModel.addRoot(url, OrderRootType.SOURCES));
+        libraryModel.commit();
+        LibraryOrderEntry added = model.findLibraryOrderEntry(library);
+        if (added != null) {
+            applyScope(added, entry);
+        }
+        return added;
+    }
+
+    private static void applyScope(ExportableOrderEntry orderEntry, EntryDescription entry) {
+        if (orderEntry.getScope() != entry.scope) {
+            orderEntry.setScope(entry.scope);
+        }
+        if (orderEntry.isExported() != entry.exported) {
+            orderEntry.setExported(entry.exported);
+        }
+    }
+
+    private static <T extends OrderEntry> T first(List<OrderEntry> orderEntries, Class<T> type) {
+        return orderEntries.stream().filter(type::isInstance).map(type::cast).findFirst().orElse(null);
+    }
+
+    private static JpsModuleSourceRootType<?> rootType(JkDomElement folderEl) {
+        String type = attribute(folderEl, "type");
+        if ("java-resource".equals(type)) {
+            return JavaResourceRootType.RESOURCE;
+        }
+        if ("java-test-resource".equals(type)) {
+            return JavaResourceRootType.TEST_RESOURCE;
+        }
+        return "true".equals(attribute(folderEl, "isTestSource")) ? JavaSourceRootType.TEST_SOURCE
+                : JavaSourceRootType.SOURCE;
+    }
+
+    private static List<String> rootUrls(JkDomElement entryEl, String xPath, PathMacroManager macroManager,
+                                         Path imlDir) {
+        return entryEl.xPath(xPath).stream()
+                .map(el -> url(el, macroManager, imlDir))
+                .collect(Collectors.toList());
+    }
+
+    private static String attribute(JkDomElement el, String name) {
+        return el.getW3cElement().getAttribute(name);
+    }
+
+    // Expands macros and normalizes path, so urls compare equal to the ones held by the project model
+    private static String url(JkDomElement el, PathMacroManager macroManager, Path imlDir) {
+        String url = attribute(el, "url").replace("$MODULE_DIR$", FileUtil.toSystemIndependentName(imlDir.toString()));
+        url = macroManager.expandPath(url);
+        String protocol = VirtualFileManager.extractProtocol(url);
+        if (protocol == null) {
+            return url;
+        }
+        String path = VirtualFileManager.extractPath(url);
+        String suffix = "";
+        int separatorIndex = path.indexOf(JarFileSystem.JAR_SEPARATOR);
+        if (separatorIndex >= 0) {
+            suffix = path.substring(separatorIndex);
+            path = path.substring(0, separatorIndex);
+        }
+        return VirtualFileManager.constructUrl(protocol, FileUtil.toCanonicalPath(path) + suffix);
+    }
+
+}
@@ -0,0 +1,261 @@
+package dev.jeka.ide.intellij.engine;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Runs Jeka within the IDE process, through a dedicated class loader per Jeka distribution jar. Class loaders
+ * are cached, so Jeka classes are loaded once per distribution and stay isolated from the jeka-core version
+ * bundled with the plugin.
+ * <p>
+ * Jeka holds global state, so runs sharing the same class loader are serialized. Output written on
+ * <code>System.out/err</code> by the running thread is redirected to the caller until the run ends. Output of
+ * threads spawned by Jeka goes to the original streams, as these threads may outlive the run.
+ * <p>
+ * This engine is opt-in : Jeka code is trusted as much as the IDE, so a <code>System.exit</code> call would stop it.
+ */
+@Service
+public final class InProcessJekaEngine implements Disposable {
+
+    private static final Logger LOGGER = Logger.getInstance(InProcessJekaEngine.class);
+
+    private static final String JEKA_MAIN_CLASS = "dev.jeka.core.tool.Main";
+
+    private final Map<Path, Method> entryPoints = new HashMap<>();
+
+    private final Set<Path> unsupportedJars = new HashSet<>();
+
+    private final ThreadLocal<OutputStream> redirectedOutput = new ThreadLocal<>();
+
+    private PrintStream originalOut;
+
+    private PrintStream originalErr;
+
+    private PrintStream routingOut;
+
+    private PrintStream routingErr;
+
+    public static InProcessJekaEngine getInstance() {
+        return ApplicationManager.getApplication().getService(InProcessJekaEngine.class);
+    }
+
+    /**
+     * Runs Jeka with the specified arguments, using the specified Jeka jar. Returns the exit code, or
+     * <code>null</code> if this Jeka version cannot run in-process, in which case caller should fall back
+     * to a regular Jeka process.
+     */
+    @Nullable
+    public Integer execute(Path jekaJar, Path workDir, List<String> args, Consumer<String> output) {
+        Method entryPoint = entryPoint(jekaJar);
+        if (entryPoint == null) {
+            return null;
+        }
+        installOutputRedirection();
+        ConsoleOutputStream consoleOutputStream = new ConsoleOutputStream(output);
+        synchronized (entryPoint) {
+            Thread thread = Thread.currentThread();
+            ClassLoader formerContextClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(entryPoint.getDeclaringClass().getClassLoader());
+            redirectedOutput.set(consoleOutputStream);
+            try {
+                entryPoint.invoke(null, workDir, args.toArray(new String[0]));
+                return 0;
+            } catch (InvocationTargetException e) {
+                e.getCause().printStackTrace(new PrintStream(consoleOutputStream, true, StandardCharsets.UTF_8));
+                return 1;
+            } catch (IllegalAccessException | LinkageError e) {
+                LOGGER.info("Cannot run Jeka in-process from " + jekaJar, e);
+                markUnsupported(jekaJar);
+                return null;
+            } finally {
+                redirectedOutput.remove();
+                consoleOutputStream.close();
+                thread.setContextClassLoader(formerContextClassLoader);
+            }
+        }
+    }
+
+    private synchronized Method entryPoint(Path jekaJar) {
+        Path key = jekaJar.toAbsolutePath().normalize();
+        if (unsupportedJars.contains(key) || !Files.exists(key)) {
+            return null;
+        }
+        Method method = entryPoints.get(key);
+        if (method != null) {
+            return method;
+        }
+        try {
+            URLClassLoader classLoader = new URLClassLoader("jeka-" + key.getFileName(),
+                    new URL[] {key.toUri().toURL()}, ClassLoader.getPlatformClassLoader());
+            method = classLoader.loadClass(JEKA_MAIN_CLASS).getMethod("exec", Path.class, String[].class);
+            entryPoints.put(key, method);
+            return method;
+        } catch (MalformedURLException | ReflectiveOperationException | LinkageError e) {
+            LOGGER.info("Jeka from " + key + " does not offer an in-process entry point.", e);
+            unsupportedJars.add(key);
+            return null;
+        }
+    }
+
+    private synchronized void markUnsupported(Path jekaJar) {
+        Path key = jekaJar.toAbsolutePath().normalize();
+        unsupportedJars.add(key);
+        closeClassLoader(entryPoints.remove(key));
+    }
+
+    private synchronized void installOutputRedirection() {
+        if (routingOut != null) {
+            return;
+        }
+        originalOut = System.out;
+        originalErr = System.err;
+        routingOut = new PrintStream(new ThreadRoutingOutputStream(originalOut), true);
+        routingErr = new PrintStream(new ThreadRoutingOutputStream(originalErr), true);
+        System.setOut(routingOut);
+        System.setErr(routingErr);
+    }
+
+    // Streams replaced by someone else since are left as is
+    private synchronized void uninstallOutputRedirection() {
+        if (routingOut == null) {
+            return;
+        }
+        if (System.out == routingOut) {
+            System.setOut(originalOut);
+        }
+        if (System.err == routingErr) {
+            System.setErr(originalErr);
+        }
+        routingOut = null;
+        routingErr = null;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        uninstallOutputRedirection();
+        entryPoints.values().forEach(InProcessJekaEngine::closeClassLoader);
+        entryPoints.clear();
+    }
+
+    private static void closeClassLoader(Method entryPoint) {
+        if (entryPoint == null) {
+            return;
+        }
+        try {
+            ((URLClassLoader) entryPoint.getDeclaringClass().getClassLoader()).close();
+        } catch (IOException e) {
+            LOGGER.warn(e);
+        }
+    }
+
+    // Sends writes to the stream registered for the current thread, if any.
+    private class ThreadRoutingOutputStream extends OutputStream {
+
+        private final OutputStream defaultStream;
+
+        ThreadRoutingOutputStream(OutputStream defaultStream) {
+            this.defaultStream = defaultStream;
+        }
+
+        private OutputStream current() {
+            OutputStream redirected = redirectedOutput.get();
+            return redirected == null ? defaultStream : redirected;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+    }
+
+    // Buffers bytes and hands complete lines to the consumer. Writes made once the run has ended are dropped.
+    private static class ConsoleOutputStream extends OutputStream {
+
+        private final Consumer<String> consumer;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private boolean closed;
+
+        ConsoleOutputStream(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (closed) {
+                return;
+            }
+            buffer.write(b);
+            if (b == '\n') {
+                flush();
+            }
+        }
+
+        // Appends the block up to each line end at once, rather than byte per byte
+        @Override
+        public synchronized void write(byte @NotNull [] b, int off, int len) {
+            if (closed) {
+                return;
+            }
+            int lineStart = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    buffer.write(b, lineStart, i + 1 - lineStart);
+                    flush();
+                    lineStart = i + 1;
+                }
+            }
+            buffer.write(b, lineStart, off + len - lineStart);
+        }
+
+        @Override
+        public synchronized void flush() {
+            if (buffer.size() == 0) {
+                return;
+            }
+            consumer.accept(buffer.toString(StandardCharsets.UTF_8));
+            buffer.reset();
+        }
+
+        @Override
+        public synchronized void close() {
+            flush();
+            closed = true;
+        }
+    }
+
+}
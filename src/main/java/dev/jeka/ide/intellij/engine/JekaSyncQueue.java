@@ -0,0 +1,253 @@
+package dev.jeka.ide.intellij.engine;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import dev.jeka.ide.intellij.common.FileHelper;
+import dev.jeka.ide.intellij.common.ModuleHelper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Single entry point for synchronizing Jeka modules of a project. Requests are queued per module dir :
+ * a request for a module already waiting in the queue is merged with it, so a module is never synchronized
+ * twice in a row for nothing. Queued requests are run by batch in a single background task, one batch after
+ * the other, so a module is never synchronized by two concurrent Jeka processes.
+ * <p>
+ * Cancelling the sync task, or closing the project, kills running Jeka processes and drops pending requests.
+ */
+@RequiredArgsConstructor
+@Service(Service.Level.PROJECT)
+public final class JekaSyncQueue implements Disposable {
+
+    private static final Logger LOGGER = Logger.getInstance(JekaSyncQueue.class);
+
+    private final Project project;
+
+    private final Map<Path, SyncRequest> pendingRequests = new LinkedHashMap<>();
+
+    private Task drainingTask;
+
+    private ProgressIndicator drainingIndicator;
+
+    public static JekaSyncQueue getInstance(Project project) {
+        return project.getService(JekaSyncQueue.class);
+    }
+
+    /**
+     * Requests sync of a single module.
+     * @param existingModule The module, or <code>null</code> if the module dir is not a module yet.
+     * @param kbeanClassName KBean class to use in the first sync attempt. Can be <code>null</code>.
+     * @param onFinish Run after the sync has succeeded. Can be <code>null</code>.
+     */
+    public void requestSync(Path moduleDir, @Nullable Module existingModule, @Nullable String kbeanClassName,
+                            boolean clearConsole, @Nullable Runnable onFinish) {
+        requestSync(moduleDir, existingModule, kbeanClassName, clearConsole, onFinish, null);
+    }
+
+    /**
+     * Same as {@link #requestSync(Path, Module, String, boolean, Runnable)}, with a callback run once the
+     * request is done, whether the sync has succeeded, failed, been cancelled or dropped with the project.
+     */
+    public void requestSync(Path moduleDir, @Nullable Module existingModule, @Nullable String kbeanClassName,
+                            boolean clearConsole, @Nullable Runnable onFinish, @Nullable Runnable onComplete) {
+        SyncRequest request = new SyncRequest(moduleDir.toAbsolutePath().normalize(), existingModule,
+                kbeanClassName, false, clearConsole);
+        if (onFinish != null) {
+            request.onFinishes.add(onFinish);
+        }
+        if (onComplete != null) {
+            request.onCompletes.add(onComplete);
+        }
+        enqueue(Collections.singletonList(request));
+    }
+
+    /**
+     * Requests sync of all Jeka modules of the project.
+     * @param skipUpToDate If <code>true</code>, modules that have not changed since their last sync are skipped.
+     */
+    public void requestSyncAll(boolean skipUpToDate) {
+        List<SyncRequest> requests = Arrays.stream(ModuleManager.getInstance(project).getSortedModules())
+                .filter(module -> {
+                    VirtualFile moduleDir = ModuleHelper.getModuleDir(module);
+                    return moduleDir != null && FileHelper.containsJekaDir(moduleDir);
+                })
+                .map(module -> new SyncRequest(ModuleHelper.getModuleDirPath(module).toAbsolutePath().normalize(),
+                        module, null, skipUpToDate, true))
+                .toList();
+        enqueue(requests);
+    }
+
+    private void enqueue(List<SyncRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (SyncRequest request : requests) {
+                pendingRequests.merge(request.moduleDir, request, SyncRequest::merge);
+            }
+        }
+        startDraining();
+    }
+
+    private void startDraining() {
+        Task.Backgroundable task;
+        synchronized (this) {
+            if (drainingTask != null || pendingRequests.isEmpty()) {
+                return;  // pending requests will be picked by the running task
+            }
+            task = new Task.Backgroundable(project, "Sync JeKa") {
+
+                @Override
+                public void run(@NotNull ProgressIndicator indicator) {
+                    drain(this, indicator);
+                }
+
+                // Also invoked when the task has been cancelled, or has never run
+                @Override
+                public void onFinished() {
+                    endDraining(this);
+                }
+            };
+            drainingTask = task;
+        }
+        ProgressManager.getInstance().run(task);
+    }
+
+    private void drain(Task task, ProgressIndicator indicator) {
+        synchronized (this) {
+            drainingIndicator = indicator;
+        }
+        try {
+            while (true) {
+                List<SyncRequest> batch;
+                synchronized (this) {
+                    if (pendingRequests.isEmpty()) {
+                        endDraining(task);
+                        return;
+                    }
+                    batch = new ArrayList<>(pendingRequests.values());
+                    pendingRequests.clear();
+                }
+                JekaSyncScheduler.getInstance(project).run(batch, indicator);
+            }
+        } catch (ProcessCanceledException e) {
+            dropPendingRequests();  // cancel applies to the whole queue
+            throw e;
+        }
+    }
+
+    // Requests queued while the task was ending are picked by a new task
+    private void endDraining(Task task) {
+        synchronized (this) {
+            if (drainingTask != task) {
+                return;
+            }
+            drainingTask = null;
+            drainingIndicator = null;
+        }
+        if (project.isDisposed()) {
+            dropPendingRequests();
+        } else {
+            startDraining();
+        }
+    }
+
+    private void dropPendingRequests() {
+        List<SyncRequest> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(pendingRequests.values());
+            pendingRequests.clear();
+        }
+        dropped.forEach(SyncRequest::runOnCompletes);
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            if (drainingIndicator != null) {
+                drainingIndicator.cancel();
+            }
+        }
+        dropPendingRequests();
+    }
+
+    /**
+     * A pending sync request on a given module dir.
+     */
+    @Getter
+    static final class SyncRequest {
+
+        private final Path moduleDir;
+
+        private Module module;
+
+        private String kbeanClassName;
+
+        private boolean skipUpToDate;
+
+        private boolean clearConsole;
+
+        private final List<Runnable> onFinishes = new LinkedList<>();
+
+        private final List<Runnable> onCompletes = new LinkedList<>();
+
+        private SyncRequest(Path moduleDir, Module module, String kbeanClassName, boolean skipUpToDate,
+                            boolean clearConsole) {
+            this.moduleDir = moduleDir;
+            this.module = module;
+            this.kbeanClassName = kbeanClassName;
+            this.skipUpToDate = skipUpToDate;
+            this.clearConsole = clearConsole;
+        }
+
+        // Merges a newer request into this one
+        private SyncRequest merge(SyncRequest newer) {
+            if (newer.module != null) {
+                module = newer.module;
+            }
+            if (newer.kbeanClassName != null) {
+                kbeanClassName = newer.kbeanClassName;
+            }
+            skipUpToDate = skipUpToDate && newer.skipUpToDate;
+            clearConsole = clearConsole || newer.clearConsole;
+            onFinishes.addAll(newer.onFinishes);
+            onCompletes.addAll(newer.onCompletes);
+            return this;
+        }
+
+        void runOnFinishes() {
+            onFinishes.forEach(Runnable::run);
+        }
+
+        // Must not throw, as it runs in cleanup paths
+        void runOnCompletes() {
+            for (Runnable onComplete : onCompletes) {
+                try {
+                    onComplete.run();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Sync completion callback has failed on " + moduleDir, e);
+                }
+            }
+            onCompletes.clear();
+        }
+
+        String getName() {
+            return module != null ? module.getName() : moduleDir.getFileName().toString();
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package dev.jeka.ide.intellij.engine;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import dev.jeka.ide.intellij.extension.JekaApplicationSettingsConfigurable;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Synchronizes a batch of Jeka modules, as drained from {@link JekaSyncQueue}. Modules that do not depend on
+ * each other are synchronized concurrently on a bounded pool, while a module is never synchronized before
+ * the modules it depends on.
+ */
+@RequiredArgsConstructor
+@Service(Service.Level.PROJECT)
+public final class JekaSyncScheduler {
+
+    private static final Logger LOGGER = Logger.getInstance(JekaSyncScheduler.class);
+
+    private final Project project;
+
+    public static JekaSyncScheduler getInstance(Project project) {
+        return project.getService(JekaSyncScheduler.class);
+    }
+
+    /**
+     * Returns the max number of modules synchronized concurrently, as configured in settings.
+     * A non-positive value means the number of available cores.
+     */
+    public static int getParallelism() {
+        int configured = JekaApplicationSettingsConfigurable.State.getInstance().syncParallelism;
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Synchronizes the modules targeted by the specified requests in the calling thread, blocking until
+     * all are done. Requests are expected to target distinct module dirs.
+     * If the indicator is cancelled, running Jeka processes are killed, modules not synchronized yet are
+     * marked as cancelled and {@link ProcessCanceledException} is thrown once all workers are released.
+     */
+    void run(List<JekaSyncQueue.SyncRequest> requests, ProgressIndicator indicator) {
+        List<JekaSyncQueue.SyncRequest> sortedRequests = ReadAction.compute(() -> sortByDependency(requests));
+        Map<Module, List<Module>> dependencies = ReadAction.compute(() -> dependencyGraph(sortedRequests));
+        CmdJekaDoer jekaDoer = CmdJekaDoer.getInstance(project);
+        SyncFingerprintStore fingerprintStore = SyncFingerprintStore.getInstance(project);
+        if (sortedRequests.stream().anyMatch(JekaSyncQueue.SyncRequest::isClearConsole)) {
+            jekaDoer.clearConsole();
+        }
+        indicator.setIndeterminate(false);
+        indicator.setFraction(0);
+        int total = sortedRequests.size();
+        AtomicInteger done = new AtomicInteger();
+        Set<String> running = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Jeka Sync",
+                getParallelism());
+        Map<Module, CompletableFuture<Void>> moduleFutures = new HashMap<>();
+        List<CompletableFuture<Void>> futures = new LinkedList<>();
+        for (JekaSyncQueue.SyncRequest request : sortedRequests) {
+            Module module = request.getModule();
+            CompletableFuture<?>[] dependencyFutures = dependencies.getOrDefault(module, List.of()).stream()
+                    .map(moduleFutures::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+            String name = request.getName();
+            CompletableFuture<Void> future = CompletableFuture.allOf(dependencyFutures)
+                    .handle((result, throwable) -> null)  // a failing dependency must not block its dependants
+                    .thenRunAsync(() -> ProgressManager.getInstance().executeProcessUnderProgress(() -> {
+                        running.add(name);
+                        updateProgress(indicator, running, done.get(), total);
+                        Path moduleDir = request.getModuleDir();
+                        try {
+                            indicator.checkCanceled();
+                            if (request.isSkipUpToDate() && module != null
+                                    && fingerprintStore.isUpToDate(moduleDir, module)) {
+                                LOGGER.info("Module " + name + " is up to date. Skip sync.");
+                                request.runOnFinishes();
+                                return;
+                            }
+                            jekaDoer.generateImlSync(moduleDir, request.getKbeanClassName(), module,
+                                    request::runOnFinishes);
+                        } catch (ProcessCanceledException e) {
+                            LOGGER.info("Sync cancelled on module " + name);
+                            fingerprintStore.invalidate(moduleDir);
+                        } catch (RuntimeException e) {
+                            LOGGER.warn("Sync failed on module " + name, e);
+                        } finally {
+                            request.runOnCompletes();
+                            running.remove(name);
+                            updateProgress(indicator, running, done.incrementAndGet(), total);
+                        }
+                    }, indicator), executor);
+            if (module != null) {
+                moduleFutures.put(module, future);
+            }
+            futures.add(future);
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        indicator.checkCanceled();
+    }
+
+    // Requests having a module, in module dependency order, followed by requests on dirs that are not modules yet
+    private List<JekaSyncQueue.SyncRequest> sortByDependency(List<JekaSyncQueue.SyncRequest> requests) {
+        List<Module> sortedModules = Arrays.asList(ModuleManager.getInstance(project).getSortedModules());
+        List<JekaSyncQueue.SyncRequest> result = new ArrayList<>(requests);
+        result.sort(Comparator.comparingInt(request -> {
+            int index = request.getModule() == null ? -1 : sortedModules.indexOf(request.getModule());
+            return index < 0 ? Integer.MAX_VALUE : index;
+        }));
+        return result;
+    }
+
+    // Direct module dependencies, restricted to the modules to synchronize
+    private static Map<Module, List<Module>> dependencyGraph(List<JekaSyncQueue.SyncRequest> requests) {
+        Set<Module> moduleSet = requests.stream()
+                .map(JekaSyncQueue.SyncRequest::getModule)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Module, List<Module>> result = new HashMap<>();
+        for (Module module : moduleSet) {
+            List<Module> deps = Arrays.stream(ModuleRootManager.getInstance(module).getDependencies())
+                    .filter(moduleSet::contains)
+                    .filter(dep -> !dep.equals(module))
+                    .collect(Collectors.toList());
+            result.put(module, deps);
+        }
+        return result;
+    }
+
+    private static void updateProgress(ProgressIndicator indicator, Set<String> running, int done, int total) {
+        indicator.setFraction((double) done / total);
+        indicator.setText("JeKa : synchronizing modules (" + done + "/" + total + ")");
+        indicator.setText2(String.join(", ", new TreeSet<>(running)));
+    }
+
+}
@@ -0,0 +1,470 @@
+package dev.jeka.ide.intellij.engine;
+
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.lang.jvm.JvmModifier;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.*;
+import com.intellij.psi.impl.source.PsiClassReferenceType;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import dev.jeka.core.api.depmanagement.JkDepSuggest;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.tool.JkConstants;
+import dev.jeka.core.tool.JkExternalToolApi;
+import dev.jeka.ide.intellij.common.ModuleHelper;
+import dev.jeka.ide.intellij.common.PsiClassHelper;
+import dev.jeka.ide.intellij.common.PsiHelper;
+import dev.jeka.ide.intellij.common.PsiMethodHelper;
+import dev.jeka.ide.intellij.common.model.KBeanFieldModel;
+import dev.jeka.ide.intellij.common.model.KBeanMembers;
+import dev.jeka.ide.intellij.common.model.KBeanMethodModel;
+import dev.jeka.ide.intellij.common.model.KBeanModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Holds, for each Jeka module, an immutable snapshot of its KBeans, methods and properties, so that
+ * completion, run configuration editors and the explorer never walk PSI themselves.
+ * <p>
+ * Snapshots are computed in background, in smart mode, within non-blocking read actions. A snapshot is stale once
+ * Java PSI has been modified, or once a Kotlin source or the KBean class cache of Jeka has changed on disk.
+ * A stale snapshot is still served while a fresh one is computed.
+ * <p>
+ * Snapshots only list KBeans. Their members are computed on demand, then kept along with the snapshot.
+ * Property models are cached per class for the whole project, so a type used by several KBeans is walked once.
+ */
+@Service(Service.Level.PROJECT)
+public final class KBeanModelService implements Disposable {
+
+    private static final Key<Snapshot> SNAPSHOT_KEY = Key.create("jeka.kbeanModel.snapshot");
+
+    private static final int MAX_FIELD_DEPTH = 8;
+
+    private final Project project;
+
+    private final ExecutorService executor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Jeka KBean model", 1);
+
+    private final Map<Module, CompletableFuture<List<KBeanModel>>> computations = new HashMap<>();
+
+    private final List<Consumer<Module>> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong fileModificationCount = new AtomicLong();
+
+    private volatile FieldSchemaCache fieldSchemaCache = new FieldSchemaCache(-1, -1);
+
+    public KBeanModelService(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                if (events.stream().anyMatch(KBeanModelService::affectsKBeans)) {
+                    fileModificationCount.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    public static KBeanModelService getInstance(Project project) {
+        return project.getService(KBeanModelService.class);
+    }
+
+    /**
+     * Returns the KBeans of the specified module, local ones first. Never waits for a computation when called
+     * from EDT : the latest snapshot, possibly stale or empty, is returned while a fresh one is computed.
+     */
+    public List<KBeanModel> getKBeans(Module module) {
+        Snapshot snapshot = module.isDisposed() ? null : module.getUserData(SNAPSHOT_KEY);
+        if (snapshot != null && snapshot.isUpToDate(this)) {
+            return snapshot.kbeans;
+        }
+        Application application = ApplicationManager.getApplication();
+        if (snapshot == null && !module.isDisposed() && !application.isDispatchThread()
+                && application.isReadAccessAllowed() && !DumbService.isDumb(project)) {
+
+            // Completion runs in a background read action, so it can afford the first computation
+            snapshot = compute(module);
+            module.putUserData(SNAPSHOT_KEY, snapshot);
+            return snapshot.kbeans;
+        }
+        request(module);
+        return snapshot == null ? List.of() : snapshot.kbeans;
+    }
+
+    /**
+     * Returns the up-to-date KBeans of the specified module, completed right away if the snapshot is fresh.
+     */
+    public CompletableFuture<List<KBeanModel>> getKBeansAsync(Module module) {
+        Snapshot snapshot = module.isDisposed() ? null : module.getUserData(SNAPSHOT_KEY);
+        if (snapshot != null && snapshot.isUpToDate(this)) {
+            return CompletableFuture.completedFuture(snapshot.kbeans);
+        }
+        return request(module).copy();
+    }
+
+    /**
+     * Returns the members of the specified KBean of the specified module, computing them in the calling thread if
+     * needed. Meant for completion, that runs in a background read action.
+     */
+    public KBeanMembers getMembers(Module module, KBeanModel kbean) {
+        Map<String, KBeanMembers> membersCache = membersCache(module);
+        KBeanMembers members = membersCache == null ? null : membersCache.get(kbean.getClassName());
+        if (members != null) {
+            return members;
+        }
+        members = ReadAction.compute(() -> computeMembers(kbean));
+        if (membersCache != null) {
+            membersCache.put(kbean.getClassName(), members);
+        }
+        return members;
+    }
+
+    /**
+     * Returns the members of the specified KBean of the specified module, computed in background within a
+     * non-blocking read action if needed. The returned future is cancelled if the computation expires or fails,
+     * so that callers can request the members again later.
+     */
+    public CompletableFuture<KBeanMembers> getMembersAsync(Module module, KBeanModel kbean) {
+        Map<String, KBeanMembers> membersCache = membersCache(module);
+        KBeanMembers cached = membersCache == null ? null : membersCache.get(kbean.getClassName());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<KBeanMembers> future = new CompletableFuture<>();
+        ReadAction.nonBlocking(() -> computeMembers(kbean))
+                .inSmartMode(project)
+                .expireWith(this)
+                .expireWith(module)
+                .submit(executor)
+                .onProcessed(members -> {
+                    if (members == null) {   // expired or failed
+                        future.cancel(false);
+                        return;
+                    }
+                    if (membersCache != null) {
+                        membersCache.put(kbean.getClassName(), members);
+                    }
+                    future.complete(members);
+                });
+        return future;
+    }
+
+    /**
+     * Adds a listener notified, in a background thread, each time a new snapshot is available for a module.
+     */
+    public void addListener(Consumer<Module> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Module> listener) {
+        listeners.remove(listener);
+    }
+
+    private synchronized CompletableFuture<List<KBeanModel>> request(Module module) {
+        CompletableFuture<List<KBeanModel>> inFlight = computations.get(module);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        CompletableFuture<List<KBeanModel>> future = new CompletableFuture<>();
+        computations.put(module, future);
+        ReadAction.nonBlocking(() -> compute(module))
+                .inSmartMode(project)
+                .expireWith(this)
+                .expireWith(module)
+                .submit(executor)
+                .onProcessed(snapshot -> {
+                    synchronized (this) {
+                        computations.remove(module);
+                    }
+                    if (snapshot == null || module.isDisposed()) {   // expired or failed
+                        future.complete(List.of());
+                        return;
+                    }
+                    module.putUserData(SNAPSHOT_KEY, snapshot);
+                    future.complete(snapshot.kbeans);
+                    listeners.forEach(listener -> listener.accept(module));
+                });
+        return future;
+    }
+
+    private Snapshot compute(Module module) {
+        long psiStamp = psiModificationCount();
+        long fileStamp = fileModificationCount.get();
+        if (module.isDisposed()) {
+            return new Snapshot(psiStamp, fileStamp, List.of());
+        }
+        List<KBeanModel> localKBeans = new LinkedList<>();
+        for (PsiClass psiClass : PsiClassHelper.findLocalBeanClasses(module)) {
+            ProgressManager.checkCanceled();
+            localKBeans.add(kbeanModel(psiClass, true));
+        }
+        Set<String> localClassNames = localKBeans.stream()
+                .map(KBeanModel::getClassName)
+                .collect(Collectors.toSet());
+        Path moduleDir = ModuleHelper.getModuleDirPath(module);
+        List<KBeanModel> classpathKBeans = new LinkedList<>();
+        for (String className : JkExternalToolApi.getCachedBeanClassNames(moduleDir)) {
+            ProgressManager.checkCanceled();
+            if (localClassNames.contains(className)) {
+                continue;
+            }
+            PsiClass psiClass = PsiClassHelper.getPsiClass(project, className);
+            if (psiClass != null) {
+                classpathKBeans.add(kbeanModel(psiClass, false));
+            }
+        }
+        classpathKBeans.sort(Comparator.comparing(KBeanModel::isUnpriorized));
+        return new Snapshot(psiStamp, fileStamp,
+                Collections.unmodifiableList(JkUtilsIterable.concatLists(localKBeans, classpathKBeans)));
+    }
+
+    // Members are cached along with the current snapshot, so they are dropped with it
+    private static Map<String, KBeanMembers> membersCache(Module module) {
+        Snapshot snapshot = module.isDisposed() ? null : module.getUserData(SNAPSHOT_KEY);
+        return snapshot == null ? null : snapshot.membersByClassName;
+    }
+
+    private KBeanModel kbeanModel(PsiClass psiClass, boolean local) {
+        String className = psiClass.getQualifiedName();
+        String tooltipContent = "<b>" + className + "</b><";
+        String doc = PsiClassHelper.getFormattedJkDoc(psiClass);
+        if (!JkUtilsString.isBlank(doc)) {
+            tooltipContent = tooltipContent + "<br/>" + doc;
+        }
+        return new KBeanModel(JkExternalToolApi.getBeanName(className), className, doc, tooltipContent, local,
+                pointer(psiClass));
+    }
+
+    private KBeanMembers computeMembers(KBeanModel kbean) {
+        PsiClass psiClass = kbean.getPointer().getElement();
+        if (psiClass == null || !psiClass.isValid()) {
+            return KBeanMembers.EMPTY;
+        }
+        return new KBeanMembers(methodModels(psiClass), fieldModels(psiClass, new FieldWalk()), nestedKBeanModels(psiClass));
+    }
+
+    private List<KBeanMethodModel> methodModels(PsiClass psiClass) {
+        return Arrays.stream(psiClass.getAllMethods())
+                .filter(PsiMethodHelper::isInstancePublicVoidNoArgsNotFromObject)
+                .sorted( (m1,m2) -> m1.getContainingClass().isInheritor(m2.getContainingClass(), true)
+                        ? 1
+                        : 0)
+                .map(psiMethod -> new KBeanMethodModel(psiMethod.getName(),
+                        PsiClassHelper.getFormattedJkDoc(psiMethod), pointer(psiMethod)))
+                .distinct()
+                .toList();
+    }
+
+    // Field models of a class are cached for the whole project, and shared by every field of this type. A class
+    // already being walked gives no children, so cyclic types end. Models cut by the cycle or depth guard depend on
+    // where the class is reached from, so they are not cached.
+    private List<KBeanFieldModel> fieldModels(PsiClass containingClass, FieldWalk walk) {
+        if (containingClass == null || !containingClass.isValid()) {
+            return List.of();
+        }
+        Map<String, List<KBeanFieldModel>> cache = fieldSchemaCache();
+        String key = fieldSchemaKey(containingClass);
+        List<KBeanFieldModel> cached = key == null ? null : cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (walk.path.size() >= MAX_FIELD_DEPTH || !walk.path.add(containingClass)) {
+            walk.truncated = true;
+            return List.of();
+        }
+        boolean truncatedBefore = walk.truncated;
+        walk.truncated = false;
+        try {
+            List<KBeanFieldModel> result = new LinkedList<>();
+            for (PsiField psiField : containingClass.getAllFields()) {
+                ProgressManager.checkCanceled();
+                if (!psiField.hasModifier(JvmModifier.PUBLIC) && !PsiHelper.hasSetter(psiField)) {
+                    continue;
+                }
+                if (psiField.getContainingClass().getQualifiedName().equals(Object.class.getName())) {
+                    continue;
+                }
+                if (psiField.hasModifier(JvmModifier.STATIC)) {
+                    continue;
+                }
+                result.add(fieldModel(psiField, walk));
+            }
+            List<KBeanFieldModel> fieldModels = Collections.unmodifiableList(result);
+            if (key != null && !walk.truncated) {
+                cache.put(key, fieldModels);
+            }
+            return fieldModels;
+        } finally {
+            walk.path.remove(containingClass);
+            walk.truncated |= truncatedBefore;
+        }
+    }
+
+    private KBeanFieldModel fieldModel(PsiField psiField, FieldWalk walk) {
+        String declaration = null;
+        if (psiField.getFirstChild() != null) {
+            String pre = psiField.getFirstChild().getText();
+            declaration = psiField.getText().substring(pre.length());
+        }
+        PsiAnnotation depSuggestAnnotation = psiField.getAnnotation(JkDepSuggest.class.getName());
+        PsiHelper.DependencySuggest depSuggest = depSuggestAnnotation == null
+                ? null : PsiHelper.toDepSuggest(depSuggestAnnotation);
+        return new KBeanFieldModel(psiField.getName(), PsiClassHelper.getFormattedJkDoc(psiField),
+                declaration, acceptedValues(psiField), depSuggest, childFieldModels(psiField, walk),
+                pointer(psiField));
+    }
+
+    private List<KBeanFieldModel> childFieldModels(PsiField psiField, FieldWalk walk) {
+        PsiType fieldType = psiField.getType();
+        if (isTerminal(fieldType)) {
+            return List.of();
+        }
+        if (fieldType instanceof PsiClassReferenceType psiClassReferenceType) {
+            return fieldModels(psiClassReferenceType.resolve(), walk);
+        }
+        return List.of();
+    }
+
+    // Field schemas are dropped as soon as PSI changes, as snapshots are
+    private Map<String, List<KBeanFieldModel>> fieldSchemaCache() {
+        FieldSchemaCache current = fieldSchemaCache;
+        if (current.isUpToDate(this)) {
+            return current.byClass;
+        }
+        FieldSchemaCache fresh = new FieldSchemaCache(psiModificationCount(), fileModificationCount.get());
+        fieldSchemaCache = fresh;
+        return fresh.byClass;
+    }
+
+    // Classes of the same name may come from different jars, depending on the module
+    @Nullable
+    private static String fieldSchemaKey(PsiClass psiClass) {
+        String className = psiClass.getQualifiedName();
+        if (className == null) {
+            return null;
+        }
+        PsiFile psiFile = psiClass.getContainingFile();
+        VirtualFile virtualFile = psiFile == null ? null : psiFile.getVirtualFile();
+        return (virtualFile == null ? "" : virtualFile.getUrl()) + "!" + className;
+    }
+
+    private List<KBeanModel> nestedKBeanModels(PsiClass psiClass) {
+        List<KBeanModel> result = new LinkedList<>();
+        for (PsiField psiField : psiClass.getAllFields()) {
+            if (psiField.getModifierList().hasExplicitModifier("private")) {
+                continue;
+            }
+            if (psiField.getType() instanceof PsiClassType classType) {
+                PsiClass childPsiClass = classType.resolve();
+                if (PsiClassHelper.isExtendingJkBean(childPsiClass)) {
+                    result.add(kbeanModel(childPsiClass, false));
+                }
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static boolean isTerminal(PsiType psiType) {
+        String typeName = psiType.getCanonicalText();
+        if (typeName.startsWith("java.")) {
+            return true;
+        }
+        String firstLetter = typeName.substring(0,1);
+        return firstLetter.equals(firstLetter.toLowerCase()) && !typeName.contains(".");
+    }
+
+    private static List<String> acceptedValues(PsiField psiField) {
+        if (psiField.getType().getPresentableText().equals("Boolean")
+                || psiField.getType().getPresentableText().equals("boolean")) {
+            return JkUtilsIterable.listOf("true", "false");
+        }
+        if (psiField.getType() instanceof PsiClassReferenceType psiClassReferenceType) {
+            PsiClass psiClass = psiClassReferenceType.resolve();
+            if (psiClass != null && psiClass.isEnum()) {
+                return Arrays.stream(psiClass.getAllFields())
+                        .filter(PsiEnumConstant.class::isInstance)
+                        .map(PsiEnumConstant.class::cast)
+                        .map(PsiEnumConstant::getText)
+                        .toList();
+            }
+        }
+        return List.of();
+    }
+
+    private <T extends PsiElement> SmartPsiElementPointer<T> pointer(T psiElement) {
+        return SmartPointerManager.getInstance(project).createSmartPsiElementPointer(psiElement);
+    }
+
+    private long psiModificationCount() {
+        return PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE).getModificationCount();
+    }
+
+    // Kotlin KBeans are seen through light classes, that Java PSI modifications do not account for
+    private static boolean affectsKBeans(VFileEvent event) {
+        String path = event.getPath();
+        return path.endsWith(".kt") || path.endsWith("/" + JkConstants.KBEAN_CLASSES_CACHE_FILE_NAME);
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private record Snapshot(long psiStamp, long fileStamp, List<KBeanModel> kbeans,
+                            Map<String, KBeanMembers> membersByClassName) {
+
+        Snapshot(long psiStamp, long fileStamp, List<KBeanModel> kbeans) {
+            this(psiStamp, fileStamp, kbeans, new ConcurrentHashMap<>());
+        }
+
+        boolean isUpToDate(KBeanModelService service) {
+            return psiStamp == service.psiModificationCount() && fileStamp == service.fileModificationCount.get();
+        }
+    }
+
+    private record FieldSchemaCache(long psiStamp, long fileStamp, Map<String, List<KBeanFieldModel>> byClass) {
+
+        FieldSchemaCache(long psiStamp, long fileStamp) {
+            this(psiStamp, fileStamp, new ConcurrentHashMap<>());
+        }
+
+        boolean isUpToDate(KBeanModelService service) {
+            return psiStamp == service.psiModificationCount() && fileStamp == service.fileModificationCount.get();
+        }
+    }
+
+    // Classes being walked from a KBean down to the current field
+    private static class FieldWalk {
+
+        private final Set<PsiClass> path = new HashSet<>();
+
+        // true once a model below the current class has been cut by a guard
+        private boolean truncated;
+    }
+
+}
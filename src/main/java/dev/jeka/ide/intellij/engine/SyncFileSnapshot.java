@@ -0,0 +1,132 @@
+package dev.jeka.ide.intellij.engine;
+
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import dev.jeka.core.tool.JkExternalToolApi;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Snapshot of the files a sync may write, taken before and after the sync, so that only what actually
+ * changed is refreshed in the VFS : the iml file, <i>.idea/modules.xml</i> and dirs created by Jeka.
+ * <p>
+ * Dirs are scanned up to a limited depth, skipping the heavy trees (node_modules, jeka-output, ...)
+ * that Jeka never creates during a sync.
+ */
+final class SyncFileSnapshot {
+
+    private static final int MAX_DIR_DEPTH = 4;
+
+    private static final Set<String> SKIPPED_DIR_NAMES = Set.of(".git", ".idea", ".gradle", ".jeka-work",
+            "jeka-output", "node_modules", "target", "build", "out", "bin", "dist");
+
+    private final Map<Path, Long> fileTimestamps;
+
+    private final Set<Path> dirs;
+
+    private SyncFileSnapshot(Map<Path, Long> fileTimestamps, Set<Path> dirs) {
+        this.fileTimestamps = fileTimestamps;
+        this.dirs = dirs;
+    }
+
+    static SyncFileSnapshot take(Path moduleDir, Path projectDir) {
+        Map<Path, Long> fileTimestamps = new HashMap<>();
+        for (Path file : List.of(JkExternalToolApi.getImlFile(moduleDir), projectDir.resolve(".idea/modules.xml"))) {
+            fileTimestamps.put(file.toAbsolutePath().normalize(), lastModified(file));
+        }
+        return new SyncFileSnapshot(fileTimestamps, scanDirs(moduleDir));
+    }
+
+    /**
+     * Refreshes, in the VFS, files and dirs that have been written since the specified earlier snapshot.
+     * Changed files are refreshed individually, while new dirs are refreshed recursively.
+     */
+    void refreshChangesSince(SyncFileSnapshot before) {
+        LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+        List<VirtualFile> changedFiles = new LinkedList<>();
+        fileTimestamps.forEach((file, timestamp) -> {
+            if (timestamp.equals(before.fileTimestamps.get(file))) {
+                return;
+            }
+            VirtualFile virtualFile = fileSystem.refreshAndFindFileByNioFile(file);
+            if (virtualFile != null) {
+                changedFiles.add(virtualFile);
+            }
+        });
+        if (!changedFiles.isEmpty()) {
+            VfsUtil.markDirtyAndRefresh(false, false, false, changedFiles.toArray(VirtualFile[]::new));
+        }
+        List<VirtualFile> newDirs = new LinkedList<>();
+        for (Path dir : topMostNewDirs(before)) {
+            VirtualFile virtualDir = fileSystem.refreshAndFindFileByNioFile(dir);
+            if (virtualDir != null) {
+                newDirs.add(virtualDir);
+            }
+        }
+        if (!newDirs.isEmpty()) {
+            VfsUtil.markDirtyAndRefresh(false, true, true, newDirs.toArray(VirtualFile[]::new));
+        }
+    }
+
+    // New dirs whose parent existed before, so each new tree is refreshed once
+    private List<Path> topMostNewDirs(SyncFileSnapshot before) {
+        List<Path> result = new LinkedList<>();
+        for (Path dir : dirs) {
+            if (!before.dirs.contains(dir) && before.dirs.contains(dir.getParent())) {
+                result.add(dir);
+            }
+        }
+        return result;
+    }
+
+    private static Set<Path> scanDirs(Path moduleDir) {
+        Set<Path> result = new HashSet<>();
+        if (!Files.isDirectory(moduleDir)) {
+            return result;
+        }
+        try {
+            Files.walkFileTree(moduleDir.toAbsolutePath().normalize(), EnumSet.noneOf(FileVisitOption.class),
+                    MAX_DIR_DEPTH, new SimpleFileVisitor<>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!result.isEmpty() && SKIPPED_DIR_NAMES.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    result.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    // dirs at max depth are visited as files
+                    if (attrs.isDirectory() && !SKIPPED_DIR_NAMES.contains(file.getFileName().toString())) {
+                        result.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // best effort : missing dirs will be picked by the next VFS refresh
+        }
+        return result;
+    }
+
+    static long lastModified(Path file) {
+        try {
+            return Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+}
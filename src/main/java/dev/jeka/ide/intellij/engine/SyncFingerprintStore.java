@@ -0,0 +1,203 @@
+package dev.jeka.ide.intellij.engine;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.tool.JkConstants;
+import dev.jeka.core.tool.JkExternalToolApi;
+import dev.jeka.ide.intellij.common.FileHelper;
+import dev.jeka.ide.intellij.common.JekaDistributions;
+import dev.jeka.ide.intellij.common.ModuleHelper;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Persists, per module, a fingerprint of everything that may change the iml generated by Jeka. This lets
+ * sync skip modules that have not changed since their last successful sync. The iml itself is not part of
+ * the fingerprint, as the IDE re-serializes it : it only has to exist.
+ * Fingerprints are stored in the IDE system dir, so they never pollute the project.
+ */
+@RequiredArgsConstructor
+@Service(Service.Level.PROJECT)
+public final class SyncFingerprintStore {
+
+    private static final Logger LOGGER = Logger.getInstance(SyncFingerprintStore.class);
+
+    private static final String FILE_NAME = "sync-fingerprints.properties";
+
+    private static final String PROJECT_DEPENDENCIES_FILE = "project-dependencies.txt";
+
+    private final Project project;
+
+    private Properties fingerprints;
+
+    public static SyncFingerprintStore getInstance(Project project) {
+        return project.getService(SyncFingerprintStore.class);
+    }
+
+    /**
+     * Returns <code>true</code> if the iml of the specified module exists and nothing has changed since the
+     * last successful sync. A fingerprint that can not be computed is never up to date.
+     * <p>
+     * Fingerprints are computed outside the lock, so that modules synchronized in parallel are checked in parallel.
+     */
+    public boolean isUpToDate(Path moduleDir, @Nullable Module module) {
+        String recorded;
+        synchronized (this) {
+            recorded = fingerprints().getProperty(key(moduleDir));
+        }
+        if (recorded == null || !Files.exists(JkExternalToolApi.getImlFile(moduleDir))) {
+            return false;
+        }
+        try {
+            return recorded.equals(fingerprint(moduleDir, module));
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            LOGGER.info("Cannot compute sync fingerprint for " + moduleDir + ". Module will be synchronized.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Records the fingerprint of the specified module. To be invoked right after a successful sync.
+     */
+    public void record(Path moduleDir, @Nullable Module module) {
+        String fingerprint;
+        try {
+            fingerprint = fingerprint(moduleDir, module);
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot record sync fingerprint for " + moduleDir, e);
+            invalidate(moduleDir);
+            return;
+        }
+        synchronized (this) {
+            fingerprints().setProperty(key(moduleDir), fingerprint);
+            save();
+        }
+    }
+
+    public synchronized void invalidate(Path moduleDir) {
+        if (fingerprints().remove(key(moduleDir)) != null) {
+            save();
+        }
+    }
+
+    private String fingerprint(Path moduleDir, @Nullable Module module) {
+        MessageDigest digest = sha256();
+        Path jekaDir = moduleDir.resolve(JkConstants.JEKA_DIR);
+
+        // Properties are inherited from parent dirs
+        for (Path dir = moduleDir; dir != null; dir = dir.getParent()) {
+            hashFile(digest, dir.resolve(JkConstants.JEKA_DIR).resolve(JkConstants.PROPERTIES_FILE));
+        }
+        hashFile(digest, JkLocator.getJekaUserHomeDir().resolve("global.properties"));
+        hashFile(digest, moduleDir.resolve(PROJECT_DEPENDENCIES_FILE));
+        hashFile(digest, jekaDir.resolve(PROJECT_DEPENDENCIES_FILE));
+        hashFile(digest, jekaDir.resolve("wrapper").resolve("wrapper.properties"));
+        hashTree(digest, moduleDir.resolve(JkConstants.DEF_DIR));
+        hashTree(digest, moduleDir.resolve("jeka-src"));
+
+        VirtualFile sdkRoot = ReadAction.compute(() -> ModuleHelper.getSdkRoot(project, module));
+        hashText(digest, sdkRoot == null ? "no-sdk" : sdkRoot.getPath());
+        hashText(digest, JekaDistributions.getDefault().getFileName().toString());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hashTree(MessageDigest digest, Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            List<Path> files = paths.filter(Files::isRegularFile).sorted().toList();
+            for (Path file : files) {
+                hashFile(digest, file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void hashFile(MessageDigest digest, Path file) {
+        hashText(digest, file.toString());
+        if (!Files.isRegularFile(file)) {
+            hashText(digest, "absent");
+            return;
+        }
+        try {
+            digest.update(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void hashText(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(Path moduleDir) {
+        return FileHelper.toUnixPath(moduleDir.toAbsolutePath().normalize().toString());
+    }
+
+    private Path storeFile() {
+        return FileHelper.getProjectSystemDir(project).resolve(FILE_NAME);
+    }
+
+    private Properties fingerprints() {
+        if (fingerprints == null) {
+            fingerprints = new Properties();
+            Path file = storeFile();
+            if (Files.exists(file)) {
+                try (InputStream is = Files.newInputStream(file)) {
+                    fingerprints.load(is);
+                } catch (IOException e) {
+                    LOGGER.warn("Cannot read " + file + ". All modules will be synchronized.", e);
+                }
+            }
+        }
+        return fingerprints;
+    }
+
+    private void save() {
+        Path file = storeFile();
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream os = Files.newOutputStream(file)) {
+                fingerprints.store(os, "Jeka sync fingerprints");
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package dev.jeka.ide.intellij.engine.daemon;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import dev.jeka.core.api.utils.JkUtilsSystem;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Client side of a Jeka sync daemon process (see {@link JekaDaemonMain}).
+ * A daemon serves one request at a time, so instances must not be shared between concurrent callers.
+ */
+final class JekaDaemon {
+
+    private static final Logger LOGGER = Logger.getInstance(JekaDaemon.class);
+
+    private static final long CANCEL_POLL_MILLIS = 200;
+
+    private static final long KILL_GRACE_MILLIS = 5000;
+
+    private final Process process;
+
+    private final BufferedReader reader;
+
+    private final Writer writer;
+
+    private JekaDaemon(Process process) {
+        this.process = process;
+        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        this.writer = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Launches a new daemon and waits until it is ready. Returns <code>null</code> if the daemon cannot start,
+     * typically because the JDK is too old or the Jeka version does not offer the expected entry point.
+     */
+    @Nullable
+    static JekaDaemon start(@Nullable Path jdkHome, Path jekaJar, long idleTimeoutMillis, int maxHeapMb) {
+        List<String> command = new LinkedList<>();
+        command.add(javaExecutable(jdkHome));
+        command.add("-Xmx" + maxHeapMb + "m");
+        command.add("-cp");
+        command.add(jekaJar + File.pathSeparator + PathManager.getJarPathForClass(JekaDaemonMain.class));
+        command.add(JekaDaemonMain.class.getName());
+        command.add(Long.toString(idleTimeoutMillis));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            JekaDaemon daemon = new JekaDaemon(process);
+            StringBuilder bootOutput = new StringBuilder();
+            String line;
+            while ((line = daemon.reader.readLine()) != null) {
+                if (line.equals(JekaDaemonMain.READY)) {
+                    return daemon;
+                }
+                bootOutput.append(line).append("\n");
+            }
+            LOGGER.info("Jeka daemon could not start with " + command + " :\n" + bootOutput);
+            daemon.destroy();
+            return null;
+        } catch (IOException e) {
+            LOGGER.info("Jeka daemon could not start with " + command, e);
+            return null;
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Runs Jeka with the specified arguments, forwarding each output line to the specified consumer.
+     * Returns the exit code, {@link JekaDaemonRegistry#CRASH_EXIT_CODE} if the daemon died while running Jeka,
+     * or <code>null</code> if the daemon died before accepting the request, so Jeka has not run at all.
+     * The daemon is killed if the specified indicator gets cancelled while serving the request.
+     */
+    @Nullable
+    Integer execute(Path workDir, List<String> args, Consumer<String> output, @Nullable ProgressIndicator indicator) {
+        ScheduledFuture<?> cancelWatcher = indicator == null ? null :
+                AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                    if (indicator.isCanceled()) {
+                        destroy();
+                    }
+                }, CANCEL_POLL_MILLIS, CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        boolean accepted = false;
+        try {
+            writer.write(workDir.toAbsolutePath() + "\t" + String.join("\t", args) + "\n");
+            writer.flush();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!accepted) {
+                    accepted = line.equals(JekaDaemonMain.ACCEPTED);
+                    continue;
+                }
+                if (line.startsWith(JekaDaemonMain.END)) {
+                    return Integer.parseInt(line.substring(JekaDaemonMain.END.length()).trim());
+                }
+                output.accept(line);
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.info("Jeka daemon crashed while serving request", e);
+        } finally {
+            if (cancelWatcher != null) {
+                cancelWatcher.cancel(false);
+            }
+        }
+        destroy();
+        if (!accepted) {
+            return null;
+        }
+        output.accept("Jeka daemon has stopped unexpectedly.");
+        return JekaDaemonRegistry.CRASH_EXIT_CODE;
+    }
+
+    /**
+     * Terminates the daemon and the processes it has spawned, gracefully first, then forcibly.
+     */
+    void destroy() {
+        if (!process.isAlive()) {
+            return;
+        }
+        List<ProcessHandle> descendants = process.descendants().toList();
+        descendants.forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            if (process.waitFor(KILL_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        descendants.forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static String javaExecutable(@Nullable Path jdkHome) {
+        String exeName = JkUtilsSystem.IS_WINDOWS ? "java.exe" : "java";
+        if (jdkHome != null) {
+            return jdkHome.resolve("bin").resolve(exeName).toString();
+        }
+        String javaHome = System.getenv("JAVA_HOME");
+        if (javaHome != null) {
+            return Path.of(javaHome, "bin", exeName).toString();
+        }
+        return exeName;
+    }
+
+}
@@ -0,0 +1,113 @@
+package dev.jeka.ide.intellij.engine.daemon;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Entry point of the Jeka sync daemon. This class runs in a dedicated JVM, having the Jeka distribution jar
+ * in its classpath, so it must not depend on any IntelliJ class, nor on Jeka at compile time.
+ * <p>
+ * Protocol, line based on stdin/stdout :
+ * <ul>
+ *     <li>Once ready, the daemon prints {@link #READY}.</li>
+ *     <li>Each request is a line made of the working dir followed by Jeka arguments, tab separated.
+ *     The daemon prints {@link #ACCEPTED} before running it.</li>
+ *     <li>Jeka output is printed as is, then the daemon prints {@link #END} followed by the exit code.</li>
+ * </ul>
+ * The daemon exits when stdin is closed, when idle for too long, or when its heap usage goes beyond the
+ * specified ratio of max heap.
+ */
+public final class JekaDaemonMain {
+
+    static final String READY = "\u0001JEKA-DAEMON-READY";
+
+    static final String ACCEPTED = "\u0001JEKA-DAEMON-ACCEPTED";
+
+    static final String END = "\u0001JEKA-DAEMON-END\t";
+
+    private static final String JEKA_MAIN_CLASS = "dev.jeka.core.tool.Main";
+
+    private static final double MAX_HEAP_USAGE_RATIO = 0.8;
+
+    private static volatile long lastActivity = System.currentTimeMillis();
+
+    private static final Object LOCK = new Object();
+
+    private static boolean busy;
+
+    /**
+     * @param args idle timeout in milliseconds
+     */
+    public static void main(String[] args) throws Exception {
+        long idleTimeout = Long.parseLong(args[0]);
+        PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(out);
+        System.setErr(out);
+        Method exec = Class.forName(JEKA_MAIN_CLASS).getMethod("exec", Path.class, String[].class);
+        startIdleWatchdog(idleTimeout);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        out.println(READY);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lastActivity = System.currentTimeMillis();
+            String[] items = line.split("\t");
+            Path workDir = Paths.get(items[0]);
+            String[] jekaArgs = Arrays.copyOfRange(items, 1, items.length);
+            int exitCode = 0;
+
+            // The watchdog can not exit once the request is accepted
+            synchronized (LOCK) {
+                busy = true;
+            }
+            out.println(ACCEPTED);
+            try {
+                exec.invoke(null, workDir, jekaArgs);
+            } catch (InvocationTargetException e) {
+                e.getCause().printStackTrace(out);
+                exitCode = 1;
+            } finally {
+                synchronized (LOCK) {
+                    busy = false;
+                }
+            }
+            out.println();
+            out.println(END + exitCode);
+            lastActivity = System.currentTimeMillis();
+            if (isHeapExhausted()) {
+                System.exit(0);  // the IDE restarts a fresh daemon on next request
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void startIdleWatchdog(long idleTimeout) {
+        Thread thread = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(Math.min(idleTimeout, 10_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                synchronized (LOCK) {
+                    if (!busy && System.currentTimeMillis() - lastActivity > idleTimeout) {
+                        System.exit(0);
+                    }
+                }
+            }
+        }, "jeka-daemon-idle-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static boolean isHeapExhausted() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return used > runtime.maxMemory() * MAX_HEAP_USAGE_RATIO;
+    }
+
+}
@@ -0,0 +1,147 @@
+package dev.jeka.ide.intellij.engine.daemon;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.progress.ProgressIndicator;
+import dev.jeka.core.api.system.JkLocator;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps warm Jeka daemons, pooled by Jeka distribution and JDK. A daemon is borrowed for the duration
+ * of a request, so concurrent syncs get distinct daemons.
+ * <p>
+ * The number of daemons is capped, as each may hold {@link #MAX_HEAP_MB} : once reached, an idle daemon of
+ * another distribution or JDK is stopped to make room, and requests are run in regular processes if all
+ * daemons are busy.
+ */
+@Service
+public final class JekaDaemonRegistry implements Disposable {
+
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final int MAX_HEAP_MB = 1024;
+
+    private static final int MAX_DAEMONS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Exit code returned when the daemon has died while running Jeka.
+     */
+    public static final int CRASH_EXIT_CODE = -1;
+
+    private final Map<String, Deque<JekaDaemon>> idleDaemons = new HashMap<>();
+
+    private final Set<String> unsupportedKeys = new HashSet<>();
+
+    private final Set<JekaDaemon> allDaemons = new HashSet<>();
+
+    private int startingCount;
+
+    public static JekaDaemonRegistry getInstance() {
+        return ApplicationManager.getApplication().getService(JekaDaemonRegistry.class);
+    }
+
+    /**
+     * Runs Jeka in a warm daemon matching the specified distribution and JDK.
+     * Returns the exit code, {@link #CRASH_EXIT_CODE} if the daemon died while running Jeka, or
+     * <code>null</code> if no daemon could serve the request, in which case the caller is expected to fall back
+     * to a regular process.
+     * If the specified indicator is cancelled meanwhile, the daemon is killed and <code>null</code> is returned.
+     */
+    @Nullable
+    public Integer execute(Path distributionDir, @Nullable Path jdkHome, Path workDir, List<String> args,
+                           Consumer<String> output, @Nullable ProgressIndicator indicator) {
+        String key = distributionDir.toAbsolutePath().normalize() + "|" + jdkHome;
+        JekaDaemon daemon = acquire(key, distributionDir, jdkHome);
+        if (daemon == null) {
+            return null;
+        }
+        Integer exitCode = daemon.execute(workDir, args, output, indicator);
+        release(key, daemon);
+        return exitCode;
+    }
+
+    private JekaDaemon acquire(String key, Path distributionDir, @Nullable Path jdkHome) {
+        JekaDaemon evicted = null;
+        synchronized (this) {
+            if (unsupportedKeys.contains(key)) {
+                return null;
+            }
+            Deque<JekaDaemon> idles = idleDaemons.computeIfAbsent(key, k -> new LinkedList<>());
+            while (!idles.isEmpty()) {
+                JekaDaemon candidate = idles.poll();
+                if (candidate.isAlive()) {
+                    return candidate;
+                }
+                allDaemons.remove(candidate);  // exited after idle timeout, memory cap or crash
+            }
+            allDaemons.removeIf(daemon -> !daemon.isAlive());
+            if (allDaemons.size() + startingCount >= MAX_DAEMONS) {
+                evicted = pollIdleDaemon();
+                if (evicted == null) {
+                    return null;  // all daemons are busy
+                }
+                allDaemons.remove(evicted);
+            }
+            startingCount++;
+        }
+        if (evicted != null) {
+            evicted.destroy();
+        }
+        JekaDaemon daemon = null;
+        try {
+            Path jekaJar = distributionDir.resolve(JkLocator.getJekaJarPath().getFileName());
+            if (!Files.exists(jekaJar)) {
+                return null;
+            }
+            daemon = JekaDaemon.start(jdkHome, jekaJar, IDLE_TIMEOUT_MILLIS, MAX_HEAP_MB);
+        } finally {
+            synchronized (this) {
+                startingCount--;
+                if (daemon != null) {
+                    allDaemons.add(daemon);
+                }
+            }
+        }
+        if (daemon == null) {
+            synchronized (this) {
+                unsupportedKeys.add(key);
+            }
+        }
+        return daemon;
+    }
+
+    // The least recently used idle daemon, whatever its distribution and JDK
+    @Nullable
+    private JekaDaemon pollIdleDaemon() {
+        for (Deque<JekaDaemon> idles : idleDaemons.values()) {
+            JekaDaemon daemon = idles.pollLast();
+            if (daemon != null) {
+                return daemon;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void release(String key, JekaDaemon daemon) {
+        if (daemon.isAlive()) {
+            idleDaemons.computeIfAbsent(key, k -> new LinkedList<>()).push(daemon);
+        } else {
+            allDaemons.remove(daemon);
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        allDaemons.forEach(JekaDaemon::destroy);
+        allDaemons.clear();
+        idleDaemons.clear();
+    }
+
+}
@@ -0,0 +1,49 @@
+package dev.jeka.ide.intellij.engine.telemetry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Phases a Jeka operation run by the plugin is broken into.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum SyncPhase {
+
+    JVM_STARTUP("JVM startup"),
+
+    DEF_COMPILATION("Def compilation"),
+
+    DEPENDENCY_RESOLUTION("Dependency resolution"),
+
+    IML_WRITING("Iml writing"),
+
+    MODEL_UPDATE("Project model update"),
+
+    VFS_REFRESH("VFS refresh"),
+
+    OTHER("Other"),
+
+    TOTAL("Total");
+
+    private final String label;
+
+    /**
+     * Guesses the phase a Jeka task belongs to, from the label it logs. Returns <code>null</code> if the task
+     * does not match any specific phase.
+     */
+    static SyncPhase ofTaskLabel(String taskLabel) {
+        String label = taskLabel.toLowerCase();
+        if (label.contains("compil")) {
+            return DEF_COMPILATION;
+        }
+        if (label.contains("resolv") || label.contains("download") || label.contains("dependenc")) {
+            return DEPENDENCY_RESOLUTION;
+        }
+        if (label.contains("iml")) {
+            return IML_WRITING;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,34 @@
+package dev.jeka.ide.intellij.engine.telemetry;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Timings of a single Jeka operation run by the plugin. Durations are in milliseconds.
+ */
+@Value
+public class SyncRecord {
+
+    Instant startTime;
+
+    String moduleName;
+
+    String operation;
+
+    String engine;
+
+    boolean success;
+
+    String jekaVersion;
+
+    String pluginVersion;
+
+    Map<SyncPhase, Long> durations;
+
+    public long getDuration(SyncPhase phase) {
+        return durations.getOrDefault(phase, 0L);
+    }
+
+}
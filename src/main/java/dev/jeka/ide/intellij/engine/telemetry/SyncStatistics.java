@@ -0,0 +1,128 @@
+package dev.jeka.ide.intellij.engine.telemetry;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.util.containers.ContainerUtil;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the timings of Jeka operations run during the current session, and computes percentiles over them.
+ */
+@Service(Service.Level.PROJECT)
+public final class SyncStatistics {
+
+    private static final int MAX_RECORDS = 2000;
+
+    private final Deque<SyncRecord> records = new ArrayDeque<>();
+
+    private final List<Runnable> listeners = ContainerUtil.createLockFreeCopyOnWriteList();
+
+    public static SyncStatistics getInstance(Project project) {
+        return project.getService(SyncStatistics.class);
+    }
+
+    void add(SyncRecord record) {
+        synchronized (this) {
+            records.addLast(record);
+            if (records.size() > MAX_RECORDS) {
+                records.removeFirst();
+            }
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Registers a listener notified, in the recording thread, each time a record is added.
+     */
+    public void addListener(Runnable listener, Disposable parentDisposable) {
+        listeners.add(listener);
+        Disposer.register(parentDisposable, () -> listeners.remove(listener));
+    }
+
+    public synchronized List<SyncRecord> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    public synchronized void clear() {
+        records.clear();
+    }
+
+    /**
+     * Returns the specified percentile (0-100) of the durations recorded for the specified phase,
+     * or -1 if this phase has not been recorded yet.
+     */
+    public static long percentile(List<SyncRecord> records, SyncPhase phase, int percentile) {
+        long[] durations = records.stream()
+                .filter(record -> record.getDurations().containsKey(phase))
+                .mapToLong(record -> record.getDuration(phase))
+                .sorted()
+                .toArray();
+        if (durations.length == 0) {
+            return -1;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * durations.length) - 1;
+        return durations[Math.max(0, Math.min(index, durations.length - 1))];
+    }
+
+    public static long count(List<SyncRecord> records, SyncPhase phase) {
+        return records.stream().filter(record -> record.getDurations().containsKey(phase)).count();
+    }
+
+    public static String toCsv(List<SyncRecord> records) {
+        StringBuilder sb = new StringBuilder("startTime,module,operation,engine,success,jekaVersion,pluginVersion");
+        for (SyncPhase phase : SyncPhase.values()) {
+            sb.append(",").append(phase.name().toLowerCase());
+        }
+        sb.append("\n");
+        for (SyncRecord record : records) {
+            sb.append(record.getStartTime()).append(",")
+                    .append(csv(record.getModuleName())).append(",")
+                    .append(csv(record.getOperation())).append(",")
+                    .append(record.getEngine()).append(",")
+                    .append(record.isSuccess()).append(",")
+                    .append(csv(record.getJekaVersion())).append(",")
+                    .append(csv(record.getPluginVersion()));
+            for (SyncPhase phase : SyncPhase.values()) {
+                sb.append(",").append(record.getDuration(phase));
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    public static String toJson(List<SyncRecord> records) {
+        return records.stream()
+                .map(SyncStatistics::toJson)
+                .collect(Collectors.joining(",\n  ", "[\n  ", "\n]\n"));
+    }
+
+    private static String toJson(SyncRecord record) {
+        String durations = Arrays.stream(SyncPhase.values())
+                .map(phase -> json(phase.name().toLowerCase()) + ": " + record.getDuration(phase))
+                .collect(Collectors.joining(", ", "{", "}"));
+        return "{\"startTime\": " + json(record.getStartTime().toString())
+                + ", \"module\": " + json(record.getModuleName())
+                + ", \"operation\": " + json(record.getOperation())
+                + ", \"engine\": " + json(record.getEngine())
+                + ", \"success\": " + record.isSuccess()
+                + ", \"jekaVersion\": " + json(record.getJekaVersion())
+                + ", \"pluginVersion\": " + json(record.getPluginVersion())
+                + ", \"durations\": " + durations + "}";
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static String json(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+}
@@ -0,0 +1,190 @@
+package dev.jeka.ide.intellij.engine.telemetry;
+
+import com.intellij.ide.plugins.IdeaPluginDescriptor;
+import com.intellij.ide.plugins.PluginManagerCore;
+import com.intellij.openapi.extensions.PluginId;
+import com.intellij.openapi.project.Project;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records phase timings of a single Jeka operation, then publishes them to {@link SyncStatistics}.
+ * Phase durations are taken from the process lifecycle, the tasks logged by Jeka in <code>-ls=BRACE</code> style
+ * (<i>label {</i> ... <i>}</i>) and the post-processing made by the plugin itself.
+ * <p>
+ * Jeka tasks are attributed exclusively : when a task matching a phase contains sub-tasks matching another
+ * phase, the time spent in sub-tasks is attributed to the sub-task phases only.
+ */
+public final class SyncTelemetry {
+
+    private static final String PLUGIN_ID = "dev.jeka.ide.intellij";
+
+    private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)\\s*(ms|milli)");
+
+    private final Project project;
+
+    private final String moduleName;
+
+    private final String operation;
+
+    private final Instant startTime = Instant.now();
+
+    private final long startMillis = System.currentTimeMillis();
+
+    private final Map<SyncPhase, Long> durations = new EnumMap<>(SyncPhase.class);
+
+    private final Deque<LoggedTask> loggedTasks = new ArrayDeque<>();
+
+    private String engine = "process";
+
+    private String jekaVersion = "";
+
+    private long processStartMillis = -1;
+
+    private boolean outputReceived;
+
+    private boolean postProcessing;
+
+    private boolean finished;
+
+    private SyncTelemetry(Project project, String moduleName, String operation) {
+        this.project = project;
+        this.moduleName = moduleName;
+        this.operation = operation;
+    }
+
+    public static SyncTelemetry start(Project project, String moduleName, String operation) {
+        return new SyncTelemetry(project, moduleName, operation);
+    }
+
+    /**
+     * Tells that the caller post-processes the operation result once the process has terminated successfully,
+     * so the caller is responsible for calling {@link #finish(boolean)}.
+     */
+    public SyncTelemetry withPostProcessing() {
+        this.postProcessing = true;
+        return this;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public boolean hasPostProcessing() {
+        return postProcessing;
+    }
+
+    /**
+     * Marks the start of the Jeka process. May be called again if the operation falls back to another engine.
+     */
+    public synchronized void processStarted(String engine, String jekaVersion) {
+        this.engine = engine;
+        this.jekaVersion = jekaVersion == null ? "" : jekaVersion;
+        this.processStartMillis = System.currentTimeMillis();
+        this.outputReceived = false;
+        this.loggedTasks.clear();
+        this.durations.clear();
+    }
+
+    /**
+     * Feeds the recorder with text output by Jeka. Text may contain several lines.
+     */
+    public synchronized void onOutput(String text) {
+        long now = System.currentTimeMillis();
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!outputReceived && processStartMillis >= 0) {
+                outputReceived = true;
+                add(SyncPhase.JVM_STARTUP, now - processStartMillis);
+            }
+            if (trimmed.endsWith("{")) {
+                loggedTasks.push(new LoggedTask(trimmed.substring(0, trimmed.length() - 1).trim(), now));
+            } else if (trimmed.startsWith("}") && !loggedTasks.isEmpty()) {
+                endTask(loggedTasks.pop(), trimmed, now);
+            }
+        }
+    }
+
+    private void endTask(LoggedTask task, String endLine, long now) {
+        Matcher matcher = DURATION_PATTERN.matcher(endLine);
+        long duration = matcher.find() ? Long.parseLong(matcher.group(1)) : now - task.startMillis;
+        SyncPhase phase = SyncPhase.ofTaskLabel(task.label);
+        long attributed;
+        if (phase != null) {
+            add(phase, Math.max(0, duration - task.attributedToChildren));
+            attributed = duration;
+        } else {
+            attributed = task.attributedToChildren;
+        }
+        LoggedTask parent = loggedTasks.peek();
+        if (parent != null) {
+            parent.attributedToChildren += attributed;
+        }
+    }
+
+    /**
+     * Runs the specified post-processing step, recording its duration under the specified phase.
+     */
+    public void measure(SyncPhase phase, Runnable runnable) {
+        long start = System.currentTimeMillis();
+        try {
+            runnable.run();
+        } finally {
+            synchronized (this) {
+                add(phase, System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    /**
+     * Publishes the recorded timings. Subsequent calls have no effect.
+     */
+    public void finish(boolean success) {
+        SyncRecord record;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long total = System.currentTimeMillis() - startMillis;
+            long phasesSum = durations.values().stream().mapToLong(Long::longValue).sum();
+            durations.put(SyncPhase.OTHER, Math.max(0, total - phasesSum));
+            durations.put(SyncPhase.TOTAL, total);
+            record = new SyncRecord(startTime, moduleName, operation, engine, success, jekaVersion,
+                    pluginVersion(), Collections.unmodifiableMap(new EnumMap<>(durations)));
+        }
+        if (!project.isDisposed()) {
+            SyncStatistics.getInstance(project).add(record);
+        }
+    }
+
+    private void add(SyncPhase phase, long millis) {
+        durations.merge(phase, millis, Long::sum);
+    }
+
+    private static String pluginVersion() {
+        IdeaPluginDescriptor descriptor = PluginManagerCore.getPlugin(PluginId.getId(PLUGIN_ID));
+        return descriptor == null ? "" : descriptor.getVersion();
+    }
+
+    private static final class LoggedTask {
+
+        final String label;
+
+        final long startMillis;
+
+        long attributedToChildren;
+
+        LoggedTask(String label, long startMillis) {
+            this.label = label;
+            this.startMillis = startMillis;
+        }
+    }
+
+}
@@ -38,6 +38,13 @@ public class JekaApplicationSettingsConfigurable implements Configurable {
         State settings = State.getInstance();
         boolean modified = !Objects.equals(appSettingsComponent.getDistributionPathText().getText(),
                 settings.distributionDirPath);
+        modified |= appSettingsComponent.getSyncParallelismSpinner().getNumber() != settings.syncParallelism;
+        modified |= appSettingsComponent.getUseSyncDaemonCheckBox().isSelected() != settings.useSyncDaemon;
+        modified |= appSettingsComponent.getInProcessSyncCheckBox().isSelected() != settings.inProcessSync;
+        modified |= appSettingsComponent.getProjectModelSyncCheckBox().isSelected() != settings.projectModelSync;
+        modified |= appSettingsComponent.getConsoleBufferSpinner().getNumber() != settings.consoleBufferKb;
+        modified |= appSettingsComponent.getCoordinateSearchTtlSpinner().getNumber()
+                != settings.coordinateSearchTtlHours;
         return modified;
     }
 
@@ -45,12 +52,24 @@ public class JekaApplicationSettingsConfigurable implements Configurable {
     public void apply() {
         State settings = State.getInstance();
         settings.distributionDirPath = appSettingsComponent.getDistributionPathText().getText();
+        settings.syncParallelism = appSettingsComponent.getSyncParallelismSpinner().getNumber();
+        settings.useSyncDaemon = appSettingsComponent.getUseSyncDaemonCheckBox().isSelected();
+        settings.inProcessSync = appSettingsComponent.getInProcessSyncCheckBox().isSelected();
+        settings.projectModelSync = appSettingsComponent.getProjectModelSyncCheckBox().isSelected();
+        settings.consoleBufferKb = appSettingsComponent.getConsoleBufferSpinner().getNumber();
+        settings.coordinateSearchTtlHours = appSettingsComponent.getCoordinateSearchTtlSpinner().getNumber();
     }
 
     @Override
     public void reset() {
         State settings = State.getInstance();
         appSettingsComponent.getDistributionPathText().setText(settings.distributionDirPath);
+        appSettingsComponent.getSyncParallelismSpinner().setNumber(settings.syncParallelism);
+        appSettingsComponent.getUseSyncDaemonCheckBox().setSelected(settings.useSyncDaemon);
+        appSettingsComponent.getInProcessSyncCheckBox().setSelected(settings.inProcessSync);
+        appSettingsComponent.getProjectModelSyncCheckBox().setSelected(settings.projectModelSync);
+        appSettingsComponent.getConsoleBufferSpinner().setNumber(settings.consoleBufferKb);
+        appSettingsComponent.getCoordinateSearchTtlSpinner().setNumber(settings.coordinateSearchTtlHours);
     }
 
     @Override
@@ -66,6 +85,24 @@ public class JekaApplicationSettingsConfigurable implements Configurable {
 
         public String distributionDirPath;
 
+        // Max number of modules synchronized concurrently. 0 means number of available cores.
+        public int syncParallelism;
+
+        // Run sync, scaffold and runtime info requests in warm Jeka daemons instead of one process per request.
+        public boolean useSyncDaemon;
+
+        // Generate iml within the IDE process. Takes precedence over daemons.
+        public boolean inProcessSync;
+
+        // Apply the generated iml as a delta on the project model, before the IDE reloads the iml file.
+        public boolean projectModelSync;
+
+        // Max amount of output, in KB, kept in Jeka console. Full output remains available in log files.
+        public int consoleBufferKb = 1024;
+
+        // Hours during which results of coordinate searches are served from cache without being refreshed.
+        public int coordinateSearchTtlHours = 24;
+
         public static State getInstance() {
             return ApplicationManager.getApplication().getService(State.class);
         }
@@ -0,0 +1,287 @@
+package dev.jeka.ide.intellij.extension;
+
+import com.intellij.execution.filters.HyperlinkInfo;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.content.Content;
+import dev.jeka.ide.intellij.common.FileHelper;
+import lombok.Getter;
+import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A Jeka console tab : either the main console of a project, or a console dedicated to operations run on a module.
+ * Module consoles also report a summary of their operations to the main console.
+ * <p>
+ * The underlying console view holds at most the amount of output configured in settings : when exceeded,
+ * the oldest half is dropped from the view. The whole output is appended to rotating log files in the project
+ * system dir, that can be opened from links at the top of the console.
+ */
+public final class JekaConsole implements Disposable {
+
+    private static final Logger LOGGER = Logger.getInstance(JekaConsole.class);
+
+    private static final long MAX_LOG_FILE_SIZE = 10 * 1024 * 1024;
+
+    private static final int MAX_LOG_FILES = 5;
+
+    private final Project project;
+
+    @Getter
+    private final ConsoleView consoleView;
+
+    @Getter
+    private final String name;
+
+    private final JekaConsole summaryConsole;
+
+    private final AtomicInteger runningOperations = new AtomicInteger();
+
+    @Getter
+    @Setter
+    private volatile Content content;
+
+    @Setter
+    private Consumer<JekaConsole> onSummaryLinkClicked = console -> {};
+
+    private final Deque<Chunk> retainedChunks = new ArrayDeque<>();
+
+    private final Path logFile;
+
+    private long retainedChars;
+
+    private Writer logWriter;
+
+    private long logFileSize;
+
+    private boolean logFailed;
+
+    JekaConsole(Project project, ConsoleView consoleView, String name, String logFileName,
+                @Nullable JekaConsole summaryConsole) {
+        this.project = project;
+        this.consoleView = consoleView;
+        this.name = name;
+        this.logFile = FileHelper.getProjectSystemDir(project).resolve("console").resolve(logFileName);
+        this.summaryConsole = summaryConsole;
+        Disposer.register(this, consoleView);
+    }
+
+    /**
+     * Marks the start of an operation printing in this console, so the console tab is not closed meanwhile.
+     * Each call must be followed by a call to {@link #endOperation()}.
+     */
+    public void startOperation() {
+        runningOperations.incrementAndGet();
+    }
+
+    public void endOperation() {
+        runningOperations.decrementAndGet();
+    }
+
+    public boolean isRunning() {
+        return runningOperations.get() > 0;
+    }
+
+    /**
+     * Prints the specified text in this console and, for module consoles, in the main console as well,
+     * prefixed with a link to this console.
+     */
+    public void printSummary(String text, ConsoleViewContentType contentType) {
+        print(text, contentType);
+        if (summaryConsole == null) {
+            return;
+        }
+        synchronized (summaryConsole) {  // keep link and text together when modules are synchronized concurrently
+            summaryConsole.printHyperlink("[" + name + "]", p -> onSummaryLinkClicked.accept(this));
+            summaryConsole.print(" " + text.trim() + "\n", contentType);
+        }
+    }
+
+    public synchronized void printHyperlink(String text, HyperlinkInfo hyperlinkInfo) {
+        appendToLog(text);
+        retainedChunks.addLast(new Chunk(text, ConsoleViewContentType.NORMAL_OUTPUT, hyperlinkInfo));
+        retainedChars += text.length();
+        consoleView.printHyperlink(text, hyperlinkInfo);
+    }
+
+    public synchronized void print(String text, ConsoleViewContentType contentType) {
+        appendToLog(text);
+        retainedChunks.addLast(new Chunk(text, contentType, null));
+        retainedChars += text.length();
+        consoleView.print(text, contentType);
+        if (retainedChars > maxChars()) {
+            dropOldestHalf();
+        }
+    }
+
+    public synchronized void clear() {
+        retainedChunks.clear();
+        retainedChars = 0;
+        consoleView.clear();
+        appendToLog("\n------------------------ " + LocalDateTime.now() + " ------------------------\n\n");
+    }
+
+    /**
+     * Forwards the output of the specified process to this console. Must be called before the process is started.
+     */
+    public void attachToProcess(ProcessHandler processHandler) {
+        processHandler.addProcessListener(new ProcessAdapter() {
+
+            @Override
+            public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+                print(event.getText(), ConsoleViewContentType.getConsoleViewType(outputType));
+            }
+        });
+    }
+
+    private void dropOldestHalf() {
+        long target = maxChars() / 2;
+        while (retainedChars > target && retainedChunks.size() > 1) {
+            retainedChars -= retainedChunks.removeFirst().text.length();
+        }
+        consoleView.clear();
+        consoleView.print("Earlier output has been removed from console. ", ConsoleViewContentType.SYSTEM_OUTPUT);
+        consoleView.printHyperlink("Open current log", p -> openLog(logFile));
+        Path dir = logFile.getParent();
+        for (int i = 1; i <= MAX_LOG_FILES; i++) {
+            Path rotatedLogFile = dir.resolve(logFile.getFileName() + "." + i);
+            if (Files.exists(rotatedLogFile)) {
+                consoleView.print(" | ", ConsoleViewContentType.SYSTEM_OUTPUT);
+                consoleView.printHyperlink("previous log " + i, p -> openLog(rotatedLogFile));
+            }
+        }
+        consoleView.print("\n\n", ConsoleViewContentType.SYSTEM_OUTPUT);
+        for (Chunk chunk : retainedChunks) {
+            if (chunk.hyperlinkInfo != null) {
+                consoleView.printHyperlink(chunk.text, chunk.hyperlinkInfo);
+            } else {
+                consoleView.print(chunk.text, chunk.contentType);
+            }
+        }
+    }
+
+    // Large files are opened in the IDE large file viewer, that pages the file instead of loading it in memory
+    private void openLog(Path file) {
+        synchronized (this) {
+            flushLog();
+        }
+        VirtualFile virtualFile = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(file);
+        if (virtualFile != null) {
+            virtualFile.refresh(false, false);
+            FileEditorManager.getInstance(project).openFile(virtualFile, true);
+        }
+    }
+
+    private void appendToLog(String text) {
+        if (logFailed) {
+            return;
+        }
+        try {
+            if (logWriter == null) {
+                Files.createDirectories(logFile.getParent());
+                logFileSize = Files.exists(logFile) ? Files.size(logFile) : 0;
+                logWriter = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            logWriter.write(text);
+            logFileSize += utf8Length(text);
+            if (logFileSize > MAX_LOG_FILE_SIZE) {
+                rotateLog();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write Jeka console log in " + logFile + ". Console output will not be logged.", e);
+            logFailed = true;
+        }
+    }
+
+    private static long utf8Length(String text) {
+        long result = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                result++;
+            } else if (c < 0x800) {
+                result += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                result += 4;
+                i++;
+            } else {
+                result += 3;
+            }
+        }
+        return result;
+    }
+
+    private void rotateLog() throws IOException {
+        logWriter.close();
+        logWriter = null;
+        Path dir = logFile.getParent();
+        String logFileName = logFile.getFileName().toString();
+        Files.deleteIfExists(dir.resolve(logFileName + "." + MAX_LOG_FILES));
+        for (int i = MAX_LOG_FILES - 1; i >= 1; i--) {
+            Path file = dir.resolve(logFileName + "." + i);
+            if (Files.exists(file)) {
+                Files.move(file, dir.resolve(logFileName + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(logFile, dir.resolve(logFileName + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void flushLog() {
+        if (logWriter == null) {
+            return;
+        }
+        try {
+            logWriter.flush();
+        } catch (IOException e) {
+            LOGGER.warn(e);
+        }
+    }
+
+    private static long maxChars() {
+        return JekaApplicationSettingsConfigurable.State.getInstance().consoleBufferKb * 1024L;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (logWriter == null) {
+            return;
+        }
+        try {
+            logWriter.close();
+        } catch (IOException e) {
+            LOGGER.warn(e);
+        }
+        logWriter = null;
+    }
+
+    private record Chunk(String text, ConsoleViewContentType contentType, HyperlinkInfo hyperlinkInfo) {
+    }
+
+}
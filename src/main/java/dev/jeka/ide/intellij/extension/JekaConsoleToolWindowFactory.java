@@ -20,17 +20,22 @@ import com.intellij.execution.filters.TextConsoleBuilder;
 import com.intellij.execution.filters.TextConsoleBuilderFactory;
 import com.intellij.execution.ui.ConsoleView;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentManager;
-import lombok.Getter;
-import lombok.Setter;
+import dev.jeka.ide.intellij.panel.SyncStatisticsPanel;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.file.Path;
+import java.util.*;
+
 /**
  * @author Jerome Angibaud
  */
@@ -38,13 +43,24 @@ public class JekaConsoleToolWindowFactory implements ToolWindowFactory, DumbAwar
 
     public static final String ID = "Jeka console";
 
+    // Max number of per-module console tabs. Least recently used idle tabs are closed beyond.
+    private static final int MAX_MODULE_CONSOLES = 8;
+
     @Override
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
         final ContentManager contentManager = toolWindow.getContentManager();
         Content content = contentManager
                 .getFactory()
-                .createContent(getConsoleView(project).getComponent(), "", false);
+                .createContent(getConsoleView(project).getComponent(), "Console", false);
         contentManager.addContent(content);
+        SyncStatisticsPanel statisticsPanel = new SyncStatisticsPanel(project);
+        Content statisticsContent = contentManager
+                .getFactory()
+                .createContent(statisticsPanel, "Sync statistics", false);
+        statisticsContent.setDisposer(statisticsPanel);
+        contentManager.addContent(statisticsContent);
+        project.getService(JekaConsoleViewService.class).getModuleConsoles().forEach(moduleConsole ->
+                addModuleContent(project, moduleConsole));
     }
 
     @Override
@@ -53,14 +69,30 @@ public class JekaConsoleToolWindowFactory implements ToolWindowFactory, DumbAwar
     }
 
     public static ConsoleView getConsoleView(Project project) {
-        ConsoleView consoleView = project.getService(JekaConsoleViewService.class).getConsoleView();
-        if (consoleView == null) {
-            consoleView = createConsoleView(project);
-            project.getService(JekaConsoleViewService.class).setConsoleView(consoleView);
-        }
-        return consoleView;
+        return getConsole(project).getConsoleView();
+    }
+
+    /**
+     * Returns the main console, gathering a summary of operations run on modules.
+     */
+    public static JekaConsole getConsole(Project project) {
+        return project.getService(JekaConsoleViewService.class).getConsole();
+    }
+
+    /**
+     * Returns the console dedicated to operations run on the specified module dir, opening a tab for it if needed.
+     */
+    public static JekaConsole getModuleConsole(Project project, Path moduleDir) {
+        return project.getService(JekaConsoleViewService.class).getModuleConsole(moduleDir, false);
     }
 
+    /**
+     * Returns the console of the specified module, with an operation started on it, so that it can not be
+     * closed until {@link JekaConsole#endOperation()} is called.
+     */
+    public static JekaConsole startModuleOperation(Project project, Path moduleDir) {
+        return project.getService(JekaConsoleViewService.class).getModuleConsole(moduleDir, true);
+    }
 
     private static ConsoleView createConsoleView(Project project) {
         TextConsoleBuilderFactory factory = TextConsoleBuilderFactory.getInstance();
@@ -68,17 +100,126 @@ public class JekaConsoleToolWindowFactory implements ToolWindowFactory, DumbAwar
         return builder.getConsole();
     }
 
+    private static ToolWindow toolWindow(Project project) {
+        return project.isDisposed() ? null : ToolWindowManager.getInstance(project).getToolWindow(ID);
+    }
+
+    // To be called in EDT. The content manager is got first, as getting it may create the tool window content,
+    // adding a tab for this console.
+    private static void addModuleContent(Project project, JekaConsole moduleConsole) {
+        ToolWindow toolWindow = toolWindow(project);
+        if (toolWindow == null) {
+            return;
+        }
+        ContentManager contentManager = toolWindow.getContentManager();
+        if (moduleConsole.getContent() != null || Disposer.isDisposed(moduleConsole)) {
+            return;
+        }
+        Content content = contentManager.getFactory()
+                .createContent(moduleConsole.getConsoleView().getComponent(), moduleConsole.getName(), false);
+        content.setCloseable(true);
+        Disposer.register(content, () -> moduleConsole.setContent(null));  // closed by user or evicted
+        moduleConsole.setContent(content);
+        contentManager.addContent(content);
+    }
+
+    // To be called in EDT
+    private static void selectModuleContent(Project project, JekaConsole moduleConsole) {
+        ToolWindow toolWindow = toolWindow(project);
+        if (toolWindow == null) {
+            return;
+        }
+        toolWindow.show(() -> {
+            ContentManager contentManager = toolWindow.getContentManager();
+            addModuleContent(project, moduleConsole);
+            Content content = moduleConsole.getContent();
+            if (content != null) {
+                contentManager.setSelectedContent(content);
+            }
+        });
+    }
 
-    @Service
+    @Service(Service.Level.PROJECT)
     private static final class JekaConsoleViewService implements Disposable {
 
-        @Getter
-        @Setter
-        private ConsoleView consoleView;
+        private final Project project;
+
+        private final LinkedHashMap<Path, JekaConsole> moduleConsoles = new LinkedHashMap<>(16, 0.75f, true);
+
+        private JekaConsole console;
+
+        JekaConsoleViewService(Project project) {
+            this.project = project;
+        }
+
+        synchronized JekaConsole getConsole() {
+            if (console == null) {
+                console = new JekaConsole(project, createConsoleView(project), "Console", "jeka-console.log", null);
+                Disposer.register(this, console);
+            }
+            return console;
+        }
+
+        synchronized List<JekaConsole> getModuleConsoles() {
+            return new ArrayList<>(moduleConsoles.values());
+        }
+
+        // Operations are started under the same lock as eviction, so a console handed out can not be evicted
+        synchronized JekaConsole getModuleConsole(Path moduleDir, boolean startOperation) {
+            Path key = moduleDir.toAbsolutePath().normalize();
+            JekaConsole moduleConsole = moduleConsoles.get(key);
+            if (moduleConsole != null) {
+                if (startOperation) {
+                    moduleConsole.startOperation();
+                }
+                return moduleConsole;
+            }
+            String name = key.getFileName().toString();
+            moduleConsole = new JekaConsole(project, createConsoleView(project), name,
+                    "module-" + name + "-" + Integer.toHexString(key.hashCode()) + ".log", getConsole());
+            moduleConsole.setOnSummaryLinkClicked(this::select);
+            Disposer.register(this, moduleConsole);
+            moduleConsoles.put(key, moduleConsole);
+            if (startOperation) {
+                moduleConsole.startOperation();
+            }
+            evictIdleConsoles();
+            JekaConsole added = moduleConsole;
+            ApplicationManager.getApplication().invokeLater(() -> addModuleContent(project, added),
+                    project.getDisposed());
+            return moduleConsole;
+        }
+
+        private void select(JekaConsole moduleConsole) {
+            ApplicationManager.getApplication().invokeLater(() -> selectModuleContent(project, moduleConsole),
+                    project.getDisposed());
+        }
+
+        // Closes least recently used consoles having no running operation, beyond the max number of tabs
+        private void evictIdleConsoles() {
+            Iterator<JekaConsole> it = moduleConsoles.values().iterator();
+            int count = moduleConsoles.size();
+            while (count > MAX_MODULE_CONSOLES && it.hasNext()) {
+                JekaConsole candidate = it.next();
+                if (candidate.isRunning()) {
+                    continue;
+                }
+                it.remove();
+                count--;
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    ToolWindow toolWindow = toolWindow(project);
+                    if (toolWindow != null && candidate.getContent() != null) {
+                        toolWindow.getContentManager().removeContent(candidate.getContent(), true);
+                    }
+                    Disposer.dispose(candidate);
+                });
+            }
+        }
 
         @Override
-        public void dispose() {
-            consoleView = null;
+        public synchronized void dispose() {
+            console = null;
+            moduleConsoles.clear();
         }
     }
 }
@@ -4,6 +4,8 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.ProjectActivity;
 import com.intellij.openapi.startup.StartupActivity;
 import dev.jeka.ide.intellij.extension.action.SyncAllImlAction;
+import dev.jeka.ide.intellij.extension.autocompletion.DeclaredCoordinateIndex;
+import dev.jeka.ide.intellij.extension.autocompletion.LocalCoordinateIndex;
 import kotlin.Unit;
 import kotlin.coroutines.Continuation;
 import org.jetbrains.annotations.NotNull;
@@ -14,7 +16,9 @@ public class JekaProjectPostStartupActivity implements ProjectActivity {
     @Nullable
     @Override
     public Object execute(@NotNull Project project, @NotNull Continuation<? super Unit> continuation) {
-        SyncAllImlAction.exec(project);
+        SyncAllImlAction.exec(project, true);
+        LocalCoordinateIndex.getInstance().requestScan();
+        DeclaredCoordinateIndex.getInstance(project).requestScan();
         return null;
     }
 }
@@ -19,16 +19,8 @@ package dev.jeka.ide.intellij.extension.action;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
-import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.VirtualFile;
-import dev.jeka.ide.intellij.common.FileHelper;
-import dev.jeka.ide.intellij.common.ModuleHelper;
-import dev.jeka.ide.intellij.engine.CmdJekaDoer;
-
-import java.nio.file.Path;
+import dev.jeka.ide.intellij.engine.JekaSyncQueue;
 
 
 /**
@@ -45,31 +37,15 @@ public class SyncAllImlAction extends AnAction {
     @Override
     public void actionPerformed(AnActionEvent event) {
         Project project = event.getProject();
-        exec(project);
+        exec(project, false);
     }
 
-    public static void exec(Project project) {
-        Module[] modules = ModuleManager.getInstance(project).getSortedModules();
-        Runnable nextStep = null;
-        CmdJekaDoer jekaDoer = CmdJekaDoer.getInstance(project);
-        for (int i = modules.length-1; i >=0; i--) {
-            Module module = modules[i];
-            VirtualFile moduleDir = ModuleHelper.getModuleDir(module);
-            if (moduleDir == null || !FileHelper.containsJekaDir(moduleDir)) {
-                continue;
-            }
-            final Runnable next = nextStep;
-            final boolean clear = i == 0;
-            Path modulePath = moduleDir.toNioPath();
-            Runnable step = () -> jekaDoer.generateIml(modulePath, null, clear, module, next);
-            nextStep = step;
-        }
-        final Runnable runnable = nextStep;
-        ApplicationManager.getApplication().invokeAndWait(() -> {
-            if (runnable != null) {
-                runnable.run();
-            }
-        });
+    /**
+     * Synchronizes all Jeka modules of the specified project.
+     * @param skipUpToDate If <code>true</code>, modules that have not changed since their last sync are skipped.
+     */
+    public static void exec(Project project, boolean skipUpToDate) {
+        JekaSyncQueue.getInstance(project).requestSyncAll(skipUpToDate);
     }
 
 }
@@ -35,7 +35,7 @@ import dev.jeka.core.tool.JkConstants;
 import dev.jeka.ide.intellij.common.FileHelper;
 import dev.jeka.ide.intellij.common.ModuleHelper;
 import dev.jeka.ide.intellij.common.PsiClassHelper;
-import dev.jeka.ide.intellij.engine.CmdJekaDoer;
+import dev.jeka.ide.intellij.engine.JekaSyncQueue;
 import lombok.Value;
 
 import java.util.List;
@@ -57,11 +57,11 @@ public class SyncImlAction extends AnAction {
     public void actionPerformed(AnActionEvent event) {
         CallContext callContext = extractCallContext(event);
         Project project = event.getProject();
-        CmdJekaDoer jekaDoer = CmdJekaDoer.getInstance(project);
+        JekaSyncQueue syncQueue = JekaSyncQueue.getInstance(project);
         ApplicationManager.getApplication().invokeAndWait(() -> {
             FileDocumentManager.getInstance().saveAllDocuments();
-            jekaDoer.generateIml(callContext.moduleDir.toNioPath(), callContext.className, true,
-                    callContext.existingModule, null);
+            syncQueue.requestSync(callContext.moduleDir.toNioPath(), callContext.existingModule,
+                    callContext.className, true, null);
         });
     }
 
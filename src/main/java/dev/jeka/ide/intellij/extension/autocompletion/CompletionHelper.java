@@ -6,24 +6,49 @@ import com.intellij.codeInsight.completion.PrioritizedLookupElement;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtil;
-import dev.jeka.core.api.depmanagement.JkCoordinateSearch;
+import com.intellij.openapi.progress.ProgressManager;
+import dev.jeka.core.api.depmanagement.JkRepo;
 import dev.jeka.core.api.depmanagement.JkRepoSet;
 import dev.jeka.core.api.depmanagement.JkVersion;
 import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.tool.JkExternalToolApi;
 import dev.jeka.ide.intellij.common.ModuleHelper;
+import org.jetbrains.annotations.Nullable;
 
+import java.net.URI;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class CompletionHelper {
+
+    private static final Logger LOGGER = Logger.getInstance(CompletionHelper.class);
+
+    // Max time completion waits for remote repositories. Popup is never frozen beyond.
+    static final long REMOTE_SEARCH_TIMEOUT_MILLIS = 3000;
+
+    private static final long CANCEL_POLL_MILLIS = 50;
+
+    private static final int MAX_POPULAR_GROUPS = 20;
+
+    private static final String DEV_JEKA_GROUP = "dev.jeka:";
+
+    private static final List<String> WELL_KNOWN_GROUPS = JkUtilsIterable.listOf("org.slf4j:", "com.google.guava:",
+            "org.mockito:", "commons-io:", "ch.qos.logback:", "org.apache.commons:", "com.fasterxml.jackson.core:",
+            "org.jetbrain.kotlin:", "com.google.code.gson:", "log4j:", "org.projectlombok:", "javax.servlet:",
+            "org.assertj:", "commons-lang:", "org.springframework:", "commons-codec:", "org.junit.jupiter:",
+            "commons-logging:", "org.springframework.boot:", "com.h2database:", "org.junit:").stream().sorted().toList();
+
     static String prefix(String fullText, int pos) {
         String separators = " \n";
         return prefix(fullText, pos, separators);
@@ -59,43 +84,154 @@ public class CompletionHelper {
         return fullText.substring(i-1, i);
     }
 
+    /**
+     * Returns versions matching the specified item, found in all download repositories, ranked from the highest.
+     */
     static List<LookupElementBuilder> findVersions(Module module, String item)  {
-        Path rootDir = ModuleHelper.getModuleDirPath(module);
-        JkRepoSet repoSet = JkExternalToolApi.getDownloadRepos(rootDir);
-        final List<String> suggests;
-        suggests = JkCoordinateSearch.of(repoSet.getRepos().get(0))
-                .setGroupOrNameCriteria(item)
-                .search();
-        List<String> container = suggests.stream()
-                .sorted(JkVersion.VERSION_COMPARATOR.reversed())
-                .toList();
         List<LookupElementBuilder> result = new LinkedList<>();
-        for (String fullResult : container ) {
-            String version = JkUtilsString.substringAfterLast(fullResult, ":");
-            LookupElementBuilder lookupElementBuilder = LookupElementBuilder
-                    .create(version)
-                    .withIcon(AllIcons.Nodes.PpLibFolder);
-            result.add(lookupElementBuilder);
-        }
+        findVersions(module, item, result::addAll);
+        Comparator<String> versionComparator = JkVersion.VERSION_COMPARATOR.reversed();
+        result.sort((element1, element2) ->
+                versionComparator.compare(element1.getLookupString(), element2.getLookupString()));
         return result;
     }
 
+    /**
+     * Passes versions matching the specified item to the consumer, as soon as they are available.
+     * Each batch is ranked from the highest version.
+     * See {@link #searchCoordinates(Module, String, BiConsumer)}.
+     */
+    static void findVersions(Module module, String item, Consumer<List<LookupElementBuilder>> consumer)  {
+        searchCoordinates(module, item, (suggests, source) -> {
+            List<String> container = suggests.stream()
+                    .sorted(JkVersion.VERSION_COMPARATOR.reversed())
+                    .toList();
+            List<LookupElementBuilder> result = new LinkedList<>();
+            for (String fullResult : container ) {
+                String version = JkUtilsString.substringAfterLast(fullResult, ":");
+                LookupElementBuilder lookupElementBuilder = LookupElementBuilder
+                        .create(version)
+                        .withIcon(AllIcons.Nodes.PpLibFolder)
+                        .withTypeText(source, true);
+                result.add(lookupElementBuilder);
+            }
+            consumer.accept(result);
+        });
+    }
+
     static List<LookupElementBuilder> findDependenciesVariants(Module module, String item, boolean includeDevJeka)  {
+        List<LookupElementBuilder> result = new LinkedList<>();
+        findDependenciesVariants(module, item, includeDevJeka, result::addAll);
+        return result;
+    }
+
+    /**
+     * Passes coordinates matching the specified item to the consumer, as soon as they are available.
+     * See {@link #searchCoordinates(Module, String, BiConsumer)}.
+     */
+    static void findDependenciesVariants(Module module, String item, boolean includeDevJeka,
+                                         Consumer<List<LookupElementBuilder>> consumer)  {
+        if (JkUtilsString.isBlank(item)) {
+            // prioritized, as the popup would otherwise sort groups alphabetically
+            consumer.accept(prioritized(toLookupElements(popularGroups(module, includeDevJeka), null), 0));
+            return;
+        }
+        searchCoordinates(module, item, (suggests, source) -> consumer.accept(toLookupElements(suggests, source)));
+    }
+
+    /**
+     * Searches coordinates matching the specified group or name criteria in all the download repositories of
+     * the specified module, concurrently. Results are passed to the consumer along with the repository they come
+     * from, without duplicates : coordinates already downloaded locally and cached results are passed
+     * immediately, then results of each remote repository as soon as it answers.
+     * <p>
+     * Remote searches go through {@link CoordinateLookupCoalescer} : short criteria are not searched remotely,
+     * and a new search starts only once typing has paused.
+     * This method waits for each repository at most {@link #REMOTE_SEARCH_TIMEOUT_MILLIS}, honoring completion
+     * cancellation. A search that times out keeps running in background, so its result is served by the next
+     * completion. Searches use the credentials configured for each repository.
+     */
+    static void searchCoordinates(Module module, String criteria, BiConsumer<List<String>, String> consumer) {
+        Set<String> passed = new HashSet<>();
+        BiConsumer<List<String>, String> dedupConsumer = (suggests, source) -> {
+            List<String> newSuggests = suggests.stream().filter(passed::add).toList();
+            if (!newSuggests.isEmpty()) {
+                consumer.accept(newSuggests, source);
+            }
+        };
+        dedupConsumer.accept(LocalCoordinateIndex.getInstance().search(criteria), "local");
+        if (!CoordinateLookupCoalescer.isSearchableRemotely(criteria)) {
+            return;
+        }
         Path rootDir = ModuleHelper.getModuleDirPath(module);
         JkRepoSet repoSet = JkExternalToolApi.getDownloadRepos(rootDir);
-        final List<String> suggests;
-        if (JkUtilsString.isBlank(item)) {
-            suggests = popularGroups(includeDevJeka);
-        } else {
-            suggests = JkCoordinateSearch.of(repoSet.getRepos().get(0))
-                    .setGroupOrNameCriteria(item)
-                    .search();
+        Map<CompletableFuture<List<String>>, String> pendings = new LinkedHashMap<>();
+        List<JkRepo> reposToSearch = new LinkedList<>();
+        for (JkRepo repo : repoSet.getRepos()) {
+            CompletableFuture<List<String>> lookup = CoordinateLookupCoalescer.lookupWithoutNewSearch(repo, criteria);
+            if (lookup != null) {
+                pendings.put(lookup, repoLabel(repo));
+            } else {
+                reposToSearch.add(repo);
+            }
+        }
+        if (!reposToSearch.isEmpty()) {
+            CoordinateLookupCoalescer.debounce();
+            for (JkRepo repo : reposToSearch) {
+                pendings.put(CoordinateSearchCache.getInstance().searchGroupOrName(repo, criteria), repoLabel(repo));
+            }
+        }
+        long deadline = System.currentTimeMillis() + REMOTE_SEARCH_TIMEOUT_MILLIS;
+        while (!pendings.isEmpty()) {
+            ProgressManager.checkCanceled();
+            Iterator<Map.Entry<CompletableFuture<List<String>>, String>> it = pendings.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<CompletableFuture<List<String>>, String> pending = it.next();
+                CompletableFuture<List<String>> future = pending.getKey();
+                if (future.isDone()) {
+                    it.remove();
+                    if (!future.isCompletedExceptionally()) {  // failures are already logged by the cache
+                        dedupConsumer.accept(future.join(), pending.getValue());
+                    }
+                }
+            }
+            if (pendings.isEmpty()) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                LOGGER.info("Coordinate search '" + criteria + "' has timed out on " + pendings.values()
+                        + ". Results will be served later.");
+                return;
+            }
+            try {
+                CompletableFuture.anyOf(pendings.keySet().toArray(CompletableFuture[]::new))
+                        .get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // check cancellation and deadline, then collect completed searches
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static String repoLabel(JkRepo repo) {
+        String url = String.valueOf(repo.getUrl());
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? url : host;
+        } catch (IllegalArgumentException e) {
+            return url;
         }
+    }
+
+    private static List<LookupElementBuilder> toLookupElements(List<String> suggests, @Nullable String source) {
         List<LookupElementBuilder> result = new LinkedList<>();
         for (String suggest : suggests) {
             LookupElementBuilder lookupElementBuilder = LookupElementBuilder
                     .create(suggest)
-                    .withIcon(AllIcons.Nodes.PpLibFolder);
+                    .withIcon(AllIcons.Nodes.PpLibFolder)
+                    .withTypeText(source, true);
             result.add(lookupElementBuilder);
         }
         return result;
@@ -133,18 +269,25 @@ public class CompletionHelper {
         return  prefixStartsWithPropName ? JkUtilsString.substringAfterLast(prefix, propName + "=") : prefix;
     }
 
-    private static List<String> popularGroups(boolean includeDevJeka) {
-        List<String> result = JkUtilsIterable.listOf("org.slf4j:", "com.google.guava:", "org.mockito:", "commons-io:",
-                "ch.qos.logback:", "org.apache.commons:", "com.fasterxml.jackson.core:", "org.jetbrain.kotlin:",
-                "com.google.code.gson:", "log4j:", "org.projectlombok:", "javax.servlet:", "org.assertj:",
-                "commons-lang:", "org.springframework:", "commons-codec:", "org.junit.jupiter:", "commons-logging:",
-                "org.springframework.boot:", "com.h2database:", "org.junit:").stream().sorted().toList();
+    // Groups declared in the project come first, then well known groups while the project declares few of them
+    private static List<String> popularGroups(@Nullable Module module, boolean includeDevJeka) {
+        List<String> declaredGroups = module == null
+                ? List.of()
+                : DeclaredCoordinateIndex.getInstance(module.getProject()).getPopularGroups(MAX_POPULAR_GROUPS);
+        LinkedHashSet<String> result = new LinkedHashSet<>();
         if (includeDevJeka) {
-            List<String> res = new LinkedList<>();
-            res.add("dev.jeka:");
-            res.addAll(result);
-            result = res;
+            result.add(DEV_JEKA_GROUP);
         }
-        return result;
+        result.addAll(declaredGroups);
+        for (String wellKnownGroup : WELL_KNOWN_GROUPS) {
+            if (result.size() >= MAX_POPULAR_GROUPS) {
+                break;
+            }
+            result.add(wellKnownGroup);
+        }
+        if (!includeDevJeka) {
+            result.remove(DEV_JEKA_GROUP);
+        }
+        return new LinkedList<>(result);
     }
 }
@@ -0,0 +1,101 @@
+package dev.jeka.ide.intellij.extension.autocompletion;
+
+import com.intellij.openapi.progress.ProgressManager;
+import dev.jeka.core.api.depmanagement.JkRepo;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stands in front of {@link CoordinateSearchCache} so that a burst of typing during completion costs one remote
+ * search instead of one per keystroke :
+ * <ul>
+ *     <li>criteria shorter than {@link #MIN_REMOTE_CRITERIA_LENGTH} are not searched remotely</li>
+ *     <li>a result cached or being searched for a broader criteria (a prefix of the typed one) is filtered
+ *     locally instead of searching again</li>
+ *     <li>a new remote search starts only once typing has paused for {@link #DEBOUNCE_MILLIS}, as completion
+ *     is cancelled and restarted on each keystroke</li>
+ * </ul>
+ * Concurrent searches for the same query are already shared by the cache.
+ */
+final class CoordinateLookupCoalescer {
+
+    static final int MIN_REMOTE_CRITERIA_LENGTH = 3;
+
+    static final long DEBOUNCE_MILLIS = 250;
+
+    private static final long CANCEL_POLL_MILLIS = 25;
+
+    // Results this large may have been truncated by the repository, so they can not stand for narrower criteria
+    private static final int MAX_FILTERABLE_RESULT_SIZE = 100;
+
+    private CoordinateLookupCoalescer() {
+    }
+
+    static boolean isSearchableRemotely(String criteria) {
+        return criteria.replace(":", "").length() >= MIN_REMOTE_CRITERIA_LENGTH;
+    }
+
+    /**
+     * Returns the result of the specified query if it can be served without starting a new remote search :
+     * from cache, from a broader cached or in-flight search, or from the same in-flight search.
+     * Returns <code>null</code> otherwise.
+     */
+    @Nullable
+    static CompletableFuture<List<String>> lookupWithoutNewSearch(JkRepo repo, String criteria) {
+        CoordinateSearchCache cache = CoordinateSearchCache.getInstance();
+        List<String> cached = cache.getGroupOrNameIfPresent(repo, criteria);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<List<String>> inFlight = cache.getGroupOrNameInFlight(repo, criteria);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        // Broader criteria must keep the same segments, as 'group:name' does not stand for 'group:name:version'
+        int minLength = Math.max(MIN_REMOTE_CRITERIA_LENGTH, criteria.lastIndexOf(':') + 1);
+        for (int length = criteria.length() - 1; length >= minLength; length--) {
+            String broaderCriteria = criteria.substring(0, length);
+            List<String> broaderCached = cache.getGroupOrNameIfPresent(repo, broaderCriteria);
+            if (broaderCached != null && broaderCached.size() < MAX_FILTERABLE_RESULT_SIZE) {
+                return CompletableFuture.completedFuture(filter(broaderCached, criteria));
+            }
+            CompletableFuture<List<String>> broaderInFlight = cache.getGroupOrNameInFlight(repo, broaderCriteria);
+            if (broaderInFlight != null) {
+                return broaderInFlight.thenCompose(broaderResult -> broaderResult.size() < MAX_FILTERABLE_RESULT_SIZE
+                        ? CompletableFuture.completedFuture(filter(broaderResult, criteria))
+                        : cache.searchGroupOrName(repo, criteria));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits for typing to pause, throwing <code>ProcessCanceledException</code> if completion is restarted
+     * in the meantime.
+     */
+    static void debounce() {
+        long deadline = System.currentTimeMillis() + DEBOUNCE_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            ProgressManager.checkCanceled();
+            try {
+                Thread.sleep(CANCEL_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        ProgressManager.checkCanceled();
+    }
+
+    private static List<String> filter(List<String> coordinates, String criteria) {
+        String lowerCriteria = criteria.toLowerCase(Locale.ROOT);
+        return coordinates.stream()
+                .filter(coordinate -> coordinate.toLowerCase(Locale.ROOT).contains(lowerCriteria))
+                .toList();
+    }
+
+}
@@ -0,0 +1,273 @@
+package dev.jeka.ide.intellij.extension.autocompletion;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import dev.jeka.core.api.depmanagement.JkCoordinateSearch;
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.ide.intellij.extension.JekaApplicationSettingsConfigurable;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches results of coordinate searches made against remote repositories, so that completion does not hit the
+ * network on each keystroke. Entries are kept in a bounded in-memory LRU map, persisted in the IDE system dir so
+ * they survive restarts.
+ * <p>
+ * Once an entry is older than the configured TTL, it is still served while a fresh search runs in background
+ * (stale-while-revalidate). Remote searches run on a dedicated bounded executor, and concurrent requests for the
+ * same query share the same search.
+ */
+@Service
+public final class CoordinateSearchCache implements Disposable {
+
+    private static final Logger LOGGER = Logger.getInstance(CoordinateSearchCache.class);
+
+    private static final int MAX_ENTRIES = 2000;
+
+    private static final long SAVE_DELAY_SECONDS = 5;
+
+    private static final String GROUP_OR_NAME_QUERY = "groupOrName";
+
+    private static final int MAX_CONCURRENT_SEARCHES = 4;
+
+    // a failing repository is not searched again meanwhile, so it does not hold search threads on each keystroke
+    private static final long FAILURE_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ExecutorService executor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Jeka coordinate search", MAX_CONCURRENT_SEARCHES);
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final Map<String, CompletableFuture<List<String>>> inFlightSearches = new HashMap<>();
+
+    private final Map<String, Long> failedRepoTimestamps = new HashMap<>();
+
+    private boolean loaded;
+
+    private boolean saveScheduled;
+
+    public static CoordinateSearchCache getInstance() {
+        return ApplicationManager.getApplication().getService(CoordinateSearchCache.class);
+    }
+
+    /**
+     * Returns the cached coordinates matching the specified group or name criteria in the specified repository,
+     * or <code>null</code> if this query has never been made. Never waits for the network.
+     */
+    @Nullable
+    public List<String> getGroupOrNameIfPresent(JkRepo repo, String criteria) {
+        String key = key(repo, GROUP_OR_NAME_QUERY, criteria);
+        Entry entry = get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            searchInBackground(key, repo, criteria);
+        }
+        return entry.values;
+    }
+
+    /**
+     * Returns coordinates matching the specified group or name criteria in the specified repository, as
+     * <code>JkCoordinateSearch#setGroupOrNameCriteria(String)</code> would. The returned future is completed
+     * right away if the query is cached. Cancelling the returned future does not stop the remote search,
+     * so its result still feeds the cache.
+     */
+    public CompletableFuture<List<String>> searchGroupOrName(JkRepo repo, String criteria) {
+        List<String> cached = getGroupOrNameIfPresent(repo, criteria);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return searchInBackground(key(repo, GROUP_OR_NAME_QUERY, criteria), repo, criteria).copy();
+    }
+
+    /**
+     * Returns the search being made for the specified group or name criteria in the specified repository, or
+     * <code>null</code> if there is none. Cancelling the returned future does not stop the search.
+     */
+    @Nullable
+    public synchronized CompletableFuture<List<String>> getGroupOrNameInFlight(JkRepo repo, String criteria) {
+        CompletableFuture<List<String>> inFlight = inFlightSearches.get(key(repo, GROUP_OR_NAME_QUERY, criteria));
+        return inFlight == null ? null : inFlight.copy();
+    }
+
+    /**
+     * Returns the <i>group:name</i> part of all coordinates returned by cached searches.
+     */
+    public synchronized Set<String> getKnownModuleIds() {
+        load();
+        Set<String> result = new HashSet<>();
+        entries.values().forEach(entry -> entry.values.forEach(coordinate -> {
+            String[] parts = coordinate.split(":");
+            if (parts.length >= 2 && !parts[0].isEmpty() && !parts[1].isEmpty()) {
+                result.add(parts[0] + ":" + parts[1]);
+            }
+        }));
+        return result;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        scheduleSave();
+    }
+
+    private synchronized CompletableFuture<List<String>> searchInBackground(String key, JkRepo repo,
+                                                                            String criteria) {
+        CompletableFuture<List<String>> inFlight = inFlightSearches.get(key);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        Long failedTimestamp = failedRepoTimestamps.get(repo.getUrl());
+        if (failedTimestamp != null && System.currentTimeMillis() - failedTimestamp < FAILURE_BACKOFF_MILLIS) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Search on " + repo.getUrl()
+                    + " has failed recently. Retried later."));
+        }
+        CompletableFuture<List<String>> future = CompletableFuture.supplyAsync(() -> {
+            List<String> result = searchRemote(repo, criteria);
+            put(key, result);
+            return result;
+        }, executor);
+        inFlightSearches.put(key, future);
+        future.whenComplete((result, error) -> {
+            synchronized (this) {
+                inFlightSearches.remove(key);
+                if (error != null) {
+                    failedRepoTimestamps.put(repo.getUrl(), System.currentTimeMillis());
+                } else {
+                    failedRepoTimestamps.remove(repo.getUrl());
+                }
+            }
+            if (error != null) {
+                LOGGER.info("Coordinate search '" + criteria + "' has failed on " + repo.getUrl(), error);
+            }
+        });
+        return future;
+    }
+
+    private static List<String> searchRemote(JkRepo repo, String criteria) {
+        return Collections.unmodifiableList(new ArrayList<>(JkCoordinateSearch.of(repo)
+                .setGroupOrNameCriteria(criteria)
+                .search()));
+    }
+
+    private synchronized Entry get(String key) {
+        load();
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, List<String> values) {
+        load();
+        entries.put(key, new Entry(System.currentTimeMillis(), values));
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        scheduleSave();
+    }
+
+    private static String key(JkRepo repo, String queryKind, String criteria) {
+        return repo.getUrl() + "|" + queryKind + "|" + criteria;
+    }
+
+    private static Path storeFile() {
+        return PathManager.getSystemDir().resolve("jeka").resolve("coordinate-search-cache.properties");
+    }
+
+    // Writes are coalesced, so a burst of completions leads to a single write
+    private void scheduleSave() {
+        if (saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(this::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Path file = storeFile();
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(file)) {
+            properties.load(is);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read " + file + ". Coordinate searches will be made again.", e);
+            return;
+        }
+        properties.stringPropertyNames().forEach(key -> {
+            Entry entry = Entry.parse(properties.getProperty(key));
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        });
+    }
+
+    private synchronized void save() {
+        saveScheduled = false;
+        Properties properties = new Properties();
+        entries.forEach((key, entry) -> properties.setProperty(key, entry.format()));
+        Path file = storeFile();
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream os = Files.newOutputStream(file)) {
+                properties.store(os, "Jeka coordinate search cache");
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        executor.shutdownNow();
+        if (saveScheduled) {
+            save();
+        }
+    }
+
+    private record Entry(long timestamp, List<String> values) {
+
+        boolean isExpired() {
+            long ttlMillis = TimeUnit.HOURS.toMillis(
+                    JekaApplicationSettingsConfigurable.State.getInstance().coordinateSearchTtlHours);
+            return System.currentTimeMillis() - timestamp > ttlMillis;
+        }
+
+        String format() {
+            return timestamp + "|" + String.join("\n", values);
+        }
+
+        static Entry parse(String value) {
+            int index = value.indexOf('|');
+            if (index < 0) {
+                return null;
+            }
+            try {
+                long timestamp = Long.parseLong(value.substring(0, index));
+                String joined = value.substring(index + 1);
+                return new Entry(timestamp, joined.isEmpty() ? List.of() : List.of(joined.split("\n")));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+}
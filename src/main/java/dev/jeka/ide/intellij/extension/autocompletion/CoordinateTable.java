@@ -0,0 +1,265 @@
+package dev.jeka.ide.intellij.extension.autocompletion;
+
+import com.intellij.psi.codeStyle.MinusculeMatcher;
+import com.intellij.psi.codeStyle.NameUtil;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Immutable sorted table of <i>group:name</i> coordinates along with their versions, stored in a file and
+ * memory-mapped, so that hundreds of thousands of coordinates cost almost nothing on heap. Entries are decoded
+ * only when probed.
+ * <p>
+ * File layout : magic number, entry count, checksum of the content, <i>count + 1</i> offsets of entries in entry
+ * data, <i>count + 1</i> offsets of versions in version data, <i>count</i> entry indexes sorted on
+ * <i>name:group</i>, then UTF-8 entry data and UTF-8 version data. Versions of an entry are comma separated.
+ */
+final class CoordinateTable {
+
+    private static final int MAGIC = 0x4A4B4355;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final int FUZZY_CHECK_TIME_EVERY = 1024;
+
+    static final CoordinateTable EMPTY = new CoordinateTable(encode(Collections.emptySortedMap()));
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    private final int versionOffsetsStart;
+
+    private final int nameOrderStart;
+
+    private final int entryDataStart;
+
+    private final int versionDataStart;
+
+    private CoordinateTable(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.count = buffer.getInt(4);
+        this.versionOffsetsStart = HEADER_SIZE + 4 * (count + 1);
+        this.nameOrderStart = versionOffsetsStart + 4 * (count + 1);
+        this.entryDataStart = nameOrderStart + 4 * count;
+        this.versionDataStart = entryDataStart + buffer.getInt(HEADER_SIZE + 4 * count);
+    }
+
+    static CoordinateTable write(Path file, SortedMap<String, ? extends Collection<String>> versionsByCoordinate)
+            throws IOException {
+        Files.createDirectories(file.getParent());
+        try (OutputStream os = Files.newOutputStream(file)) {
+            os.write(encode(versionsByCoordinate).array());
+        }
+        return open(file);
+    }
+
+    static CoordinateTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Invalid coordinate table " + file);
+            }
+            return new CoordinateTable(buffer);
+        }
+    }
+
+    /**
+     * Returns the checksum a table written with the specified content would have, so that a rebuild can tell
+     * whether the table has changed without decoding it.
+     */
+    static int checksum(SortedMap<String, ? extends Collection<String>> versionsByCoordinate) {
+        CRC32 crc = new CRC32();
+        versionsByCoordinate.forEach((coordinate, versions) -> {
+            crc.update(coordinate.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+            crc.update(String.join(",", versions).getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        });
+        return (int) crc.getValue();
+    }
+
+    int checksum() {
+        return buffer.getInt(8);
+    }
+
+    int size() {
+        return count;
+    }
+
+    String get(int index) {
+        return decode(entryDataStart, HEADER_SIZE, index);
+    }
+
+    /**
+     * Returns the versions of the specified <i>group:name</i> coordinate, in the order they have been written.
+     */
+    List<String> versions(String coordinate) {
+        int index = lowerBound(coordinate, false);
+        if (index >= count || !get(index).equals(coordinate)) {
+            return List.of();
+        }
+        String versions = decode(versionDataStart, versionOffsetsStart, index);
+        return versions.isEmpty() ? List.of() : List.of(versions.split(","));
+    }
+
+    /**
+     * Returns entries starting with the specified prefix, in order. Costs a binary search plus one decode per
+     * returned entry.
+     */
+    List<String> prefixMatches(String prefix, int limit) {
+        List<String> result = new LinkedList<>();
+        for (int i = lowerBound(prefix, false); i < count && result.size() < limit; i++) {
+            String entry = get(i);
+            if (!entry.startsWith(prefix)) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Returns entries whose name starts with the specified prefix, ordered by name. Same cost as
+     * {@link #prefixMatches(String, int)}, using the <i>name:group</i> order.
+     */
+    List<String> namePrefixMatches(String prefix, int limit) {
+        List<String> result = new LinkedList<>();
+        for (int i = lowerBound(prefix, true); i < count && result.size() < limit; i++) {
+            String entry = get(nameOrder(i));
+            if (!JkUtilsString.substringAfterFirst(entry, ":").startsWith(prefix)) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Returns entries whose group and name segments match the specified criteria in a camel-hump and typo
+     * tolerant way, e.g. <i>sprbootstarter</i> or <i>spirng-boot</i> match <i>spring-boot-starter</i>.
+     * A criteria containing a colon matches group and name separately. This scans the table, so the scan
+     * stops after the specified time, returning the matches found so far.
+     */
+    List<String> fuzzyMatches(String criteria, int limit, Set<String> excluded, long timeoutMillis) {
+        String groupCriteria = criteria.contains(":") ? JkUtilsString.substringBeforeFirst(criteria, ":") : "";
+        String nameCriteria = criteria.contains(":") ? JkUtilsString.substringAfterFirst(criteria, ":") : criteria;
+        MinusculeMatcher groupMatcher = groupCriteria.isEmpty() ? null : matcher(groupCriteria);
+        MinusculeMatcher nameMatcher = nameCriteria.isEmpty() ? null : matcher(nameCriteria);
+        boolean eitherSegment = !criteria.contains(":");
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<String> result = new LinkedList<>();
+        for (int i = 0; i < count && result.size() < limit; i++) {
+            if (i % FUZZY_CHECK_TIME_EVERY == 0 && i > 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            String entry = get(i);
+            if (excluded.contains(entry)) {
+                continue;
+            }
+            String group = JkUtilsString.substringBeforeFirst(entry, ":");
+            String name = JkUtilsString.substringAfterFirst(entry, ":");
+            boolean matches;
+            if (eitherSegment) {
+                matches = nameMatcher.matches(name) || nameMatcher.matches(group);
+            } else {
+                matches = (groupMatcher == null || groupMatcher.matches(group))
+                        && (nameMatcher == null || nameMatcher.matches(name));
+            }
+            if (matches) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static ByteBuffer encode(SortedMap<String, ? extends Collection<String>> versionsByCoordinate) {
+        int count = versionsByCoordinate.size();
+        List<String> coordinates = new ArrayList<>(versionsByCoordinate.keySet());
+        List<byte[]> entries = new ArrayList<>(count);
+        List<byte[]> versions = new ArrayList<>(count);
+        int entryDataSize = 0;
+        int versionDataSize = 0;
+        for (Map.Entry<String, ? extends Collection<String>> entry : versionsByCoordinate.entrySet()) {
+            byte[] entryBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] versionBytes = String.join(",", entry.getValue()).getBytes(StandardCharsets.UTF_8);
+            entries.add(entryBytes);
+            versions.add(versionBytes);
+            entryDataSize += entryBytes.length;
+            versionDataSize += versionBytes.length;
+        }
+        Integer[] nameOrder = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            nameOrder[i] = i;
+        }
+        Arrays.sort(nameOrder, Comparator.comparing(index -> nameFirst(coordinates.get(index))));
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * (3 * count + 2) + entryDataSize + versionDataSize);
+        buffer.putInt(MAGIC).putInt(count).putInt(checksum(versionsByCoordinate));
+        putOffsets(buffer, entries);
+        putOffsets(buffer, versions);
+        for (int index : nameOrder) {
+            buffer.putInt(index);
+        }
+        entries.forEach(buffer::put);
+        versions.forEach(buffer::put);
+        return buffer;
+    }
+
+    private static void putOffsets(ByteBuffer buffer, List<byte[]> items) {
+        int offset = 0;
+        for (byte[] item : items) {
+            buffer.putInt(offset);
+            offset += item.length;
+        }
+        buffer.putInt(offset);
+    }
+
+    private String decode(int dataStart, int offsetsStart, int index) {
+        int start = buffer.getInt(offsetsStart + 4 * index);
+        int end = buffer.getInt(offsetsStart + 4 * (index + 1));
+        byte[] bytes = new byte[end - start];
+        buffer.get(dataStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int nameOrder(int position) {
+        return buffer.getInt(nameOrderStart + 4 * position);
+    }
+
+    private static String nameFirst(String coordinate) {
+        return JkUtilsString.substringAfterFirst(coordinate, ":") + ":"
+                + JkUtilsString.substringBeforeFirst(coordinate, ":");
+    }
+
+    private static MinusculeMatcher matcher(String pattern) {
+        return NameUtil.buildMatcher("*" + pattern).typoTolerant().build();
+    }
+
+    // Position of the first entry greater or equal to the specified key, in group:name or name:group order
+    private int lowerBound(String key, boolean byName) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            String entry = byName ? nameFirst(get(nameOrder(middle))) : get(middle);
+            if (entry.compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
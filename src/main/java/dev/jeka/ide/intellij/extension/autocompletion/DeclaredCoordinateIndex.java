@@ -0,0 +1,320 @@
+package dev.jeka.ide.intellij.extension.autocompletion;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.ModuleListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import dev.jeka.core.tool.JkConstants;
+import dev.jeka.ide.intellij.common.ModuleHelper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Counts how often each group is declared across the Jeka modules of the project, so that completion can
+ * suggest the groups the project actually uses when nothing has been typed yet, without network.
+ * <p>
+ * Declarations are read from <i>project-dependencies.txt</i> files, the <i>jeka.classpath.inject</i> property,
+ * and <code>@JkInjectClasspath</code> and <code>@JkDepSuggest</code> literals found in def sources. Files are
+ * scanned once in background, then re-read one by one as they change on disk.
+ */
+@Service(Service.Level.PROJECT)
+public final class DeclaredCoordinateIndex implements Disposable {
+
+    private static final Logger LOGGER = Logger.getInstance(DeclaredCoordinateIndex.class);
+
+    private static final String PROJECT_DEPENDENCIES_FILE = "project-dependencies.txt";
+
+    private static final String CLASSPATH_INJECT_PROPERTY = "jeka.classpath.inject";
+
+    private static final String JEKA_SRC_DIR = "jeka-src";
+
+    // 'group:name...' or 'group:', excluding drive letters and urls
+    private static final Pattern COORDINATE_PATTERN = Pattern.compile("^([\\w.\\-]{2,}):(?!//)");
+
+    private static final Pattern INJECT_CLASSPATH_PATTERN =
+            Pattern.compile("@JkInjectClasspath\\s*\\(\\s*(?:value\\s*=\\s*)?\"([^\"]*)\"");
+
+    private static final Pattern DEP_SUGGEST_PATTERN = Pattern.compile("@JkDepSuggest\\s*\\(([^)]*)\\)");
+
+    private static final Pattern HINT_PATTERN = Pattern.compile("hint\\s*=\\s*\"([^\"]*)\"");
+
+    private final Project project;
+
+    private final ExecutorService executor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Jeka declared coordinates", 1);
+
+    private final Map<Path, List<String>> groupsByFile = new ConcurrentHashMap<>();
+
+    private volatile Set<Path> moduleDirs = Set.of();
+
+    private boolean scanRequested;
+
+    public DeclaredCoordinateIndex(Project project) {
+        this.project = project;
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                List<FileChange> changes = new LinkedList<>();
+                events.forEach(event -> collectChanges(event, changes));
+                if (!changes.isEmpty()) {
+                    executor.execute(() -> changes.forEach(DeclaredCoordinateIndex.this::onFileChange));
+                }
+            }
+        });
+        connection.subscribe(ProjectTopics.MODULES, new ModuleListener() {
+
+            @Override
+            public void moduleAdded(@NotNull Project project, @NotNull Module module) {
+                executor.execute(DeclaredCoordinateIndex.this::scan);
+            }
+
+            @Override
+            public void moduleRemoved(@NotNull Project project, @NotNull Module module) {
+                executor.execute(DeclaredCoordinateIndex.this::scan);
+            }
+        });
+    }
+
+    public static DeclaredCoordinateIndex getInstance(Project project) {
+        return project.getService(DeclaredCoordinateIndex.class);
+    }
+
+    /**
+     * Returns the groups declared in the project, as <i>group:</i> items, from the most declared.
+     * Returns an empty list until the first scan has completed.
+     */
+    public List<String> getPopularGroups(int limit) {
+        requestScan();
+        Map<String, Integer> counts = new HashMap<>();
+        groupsByFile.values().forEach(groups -> groups.forEach(group -> counts.merge(group, 1, Integer::sum)));
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> entry.getKey() + ":")
+                .toList();
+    }
+
+    /**
+     * Scans the project in background, unless it has already been scanned.
+     */
+    public synchronized void requestScan() {
+        if (scanRequested) {
+            return;
+        }
+        scanRequested = true;
+        executor.execute(this::scan);
+    }
+
+    private void scan() {
+        if (project.isDisposed()) {
+            return;
+        }
+        Set<Path> dirs = ReadAction.compute(() -> {
+            Set<Path> result = new HashSet<>();
+            for (Module module : ModuleManager.getInstance(project).getModules()) {
+                if (ModuleHelper.isJekaModule(module)) {
+                    result.add(ModuleHelper.getModuleDirPath(module));
+                }
+            }
+            return result;
+        });
+        moduleDirs = Set.copyOf(dirs);
+        groupsByFile.keySet().removeIf(file -> !isInModuleDirs(file));
+        for (Path moduleDir : dirs) {
+            Path jekaDir = moduleDir.resolve(JkConstants.JEKA_DIR);
+            index(moduleDir.resolve(PROJECT_DEPENDENCIES_FILE));
+            index(jekaDir.resolve(PROJECT_DEPENDENCIES_FILE));
+            index(jekaDir.resolve(JkConstants.PROPERTIES_FILE));
+            indexSources(moduleDir.resolve(JkConstants.DEF_DIR));
+            indexSources(moduleDir.resolve(JEKA_SRC_DIR));
+        }
+    }
+
+    private void indexSources(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.filter(DeclaredCoordinateIndex::isSourceFile).forEach(this::index);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Cannot scan " + dir + " for declared coordinates", e);
+        }
+    }
+
+    // Runs in EDT, so only keeps the changes that may matter, using string checks. Module dirs are matched in
+    // background.
+    private static void collectChanges(VFileEvent event, List<FileChange> changes) {
+        if (!event.getFileSystem().getProtocol().equals("file")) {
+            return;
+        }
+        List<String> paths = new LinkedList<>();
+        paths.add(event.getPath());
+        if (event instanceof VFileMoveEvent moveEvent) {
+            paths.add(moveEvent.getOldPath());
+        } else if (event instanceof VFilePropertyChangeEvent propertyChangeEvent
+                && propertyChangeEvent.isRename()) {
+            paths.add(propertyChangeEvent.getOldPath());
+        }
+        boolean deletedDir = event instanceof VFileDeleteEvent && event.getFile().isDirectory();
+        for (String path : paths) {
+            if (deletedDir || isIndexed(path)) {
+                changes.add(new FileChange(path, deletedDir));
+            }
+        }
+    }
+
+    private void onFileChange(FileChange change) {
+        Path path = Paths.get(change.path());
+        if (!isInModuleDirs(path)) {
+            return;
+        }
+        if (change.deletedDir()) {
+            groupsByFile.keySet().removeIf(file -> file.startsWith(path));
+        } else {
+            index(path);
+        }
+    }
+
+    private boolean isInModuleDirs(Path path) {
+        return moduleDirs.stream().anyMatch(path::startsWith);
+    }
+
+    // Paths of VFS events are '/' separated on every OS
+    private static boolean isIndexed(String path) {
+        if (path.endsWith("/" + PROJECT_DEPENDENCIES_FILE)
+                || path.endsWith("/" + JkConstants.JEKA_DIR + "/" + JkConstants.PROPERTIES_FILE)) {
+            return true;
+        }
+        String defDir = JkConstants.DEF_DIR.replace('\\', '/');
+        return (path.endsWith(".java") || path.endsWith(".kt"))
+                && (path.contains("/" + defDir + "/") || path.contains("/" + JEKA_SRC_DIR + "/"));
+    }
+
+    private static boolean isSourceFile(Path file) {
+        String name = file.getFileName().toString();
+        return Files.isRegularFile(file) && (name.endsWith(".java") || name.endsWith(".kt"));
+    }
+
+    private void index(Path file) {
+        if (!Files.isRegularFile(file)) {
+            groupsByFile.remove(file);
+            return;
+        }
+        String content;
+        try {
+            content = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            groupsByFile.remove(file);
+            return;
+        }
+        String name = file.getFileName().toString();
+        List<String> groups;
+        if (name.equals(PROJECT_DEPENDENCIES_FILE)) {
+            groups = groupsOfDependenciesTxt(content);
+        } else if (name.equals(JkConstants.PROPERTIES_FILE)) {
+            groups = groupsOfProperties(content);
+        } else {
+            groups = groupsOfSource(content);
+        }
+        if (groups.isEmpty()) {
+            groupsByFile.remove(file);
+        } else {
+            groupsByFile.put(file, groups);
+        }
+    }
+
+    private static List<String> groupsOfDependenciesTxt(String content) {
+        List<String> result = new LinkedList<>();
+        for (String line : content.split("\n")) {
+            String trimmed = line.trim();
+
+            // exclusions are not worth suggesting
+            if (trimmed.isEmpty() || trimmed.startsWith("=") || trimmed.startsWith("#") || trimmed.startsWith("-")) {
+                continue;
+            }
+            while (trimmed.startsWith("@")) {
+                trimmed = trimmed.substring(1).trim();
+            }
+            addGroup(result, trimmed.split("\\s+")[0]);
+        }
+        return result;
+    }
+
+    private static List<String> groupsOfProperties(String content) {
+        Properties properties = new Properties();
+        try (Reader reader = new StringReader(content)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            return List.of();
+        }
+        String injected = properties.getProperty(CLASSPATH_INJECT_PROPERTY, "");
+        List<String> result = new LinkedList<>();
+        for (String item : injected.trim().split("\\s+")) {
+            addGroup(result, item);
+        }
+        return result;
+    }
+
+    private static List<String> groupsOfSource(String content) {
+        List<String> result = new LinkedList<>();
+        Matcher injectMatcher = INJECT_CLASSPATH_PATTERN.matcher(content);
+        while (injectMatcher.find()) {
+            addGroup(result, injectMatcher.group(1));
+        }
+        Matcher depSuggestMatcher = DEP_SUGGEST_PATTERN.matcher(content);
+        while (depSuggestMatcher.find()) {
+            Matcher hintMatcher = HINT_PATTERN.matcher(depSuggestMatcher.group(1));
+            if (hintMatcher.find()) {
+                for (String item : hintMatcher.group(1).split(",")) {
+                    addGroup(result, item.trim());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addGroup(List<String> groups, String coordinate) {
+        Matcher matcher = COORDINATE_PATTERN.matcher(coordinate);
+        if (matcher.find()) {
+            groups.add(matcher.group(1));
+        }
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private record FileChange(String path, boolean deletedDir) {
+    }
+
+}
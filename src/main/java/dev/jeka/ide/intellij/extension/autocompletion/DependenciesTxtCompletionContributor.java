@@ -1,8 +1,6 @@
 package dev.jeka.ide.intellij.extension.autocompletion;
 
 import com.intellij.codeInsight.completion.*;
-import com.intellij.codeInsight.lookup.LookupElement;
-import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.patterns.ElementPattern;
@@ -14,8 +12,6 @@ import com.intellij.psi.PsiPlainText;
 import com.intellij.util.ProcessingContext;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 public class DependenciesTxtCompletionContributor extends CompletionContributor {
 
     public DependenciesTxtCompletionContributor() {
@@ -56,8 +52,8 @@ public class DependenciesTxtCompletionContributor extends CompletionContributor
                 prefix = prefix.substring(2).trim();
             }
             Module module = ModuleUtil.findModuleForFile(parameters.getOriginalFile());
-            List<LookupElementBuilder> lookupElements = CompletionHelper.findDependenciesVariants(module, prefix, true);
-            resultSet.withPrefixMatcher(prefix).addAllElements(lookupElements);
+            CompletionResultSet prefixedResultSet = resultSet.withPrefixMatcher(prefix);
+            CompletionHelper.findDependenciesVariants(module, prefix, true, prefixedResultSet::addAllElements);
             resultSet.stopHere();
         }
     }
@@ -17,6 +17,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static com.intellij.patterns.PlatformPatterns.psiElement;
 
@@ -107,20 +108,23 @@ public class JavaCodeDependenciesCompletionContributor extends CompletionContrib
                 content = depSuggest.hint();
             }
             Module module = ModuleUtil.findModuleForFile(parameters.getOriginalFile());
-            final List<LookupElementBuilder> result;
+
+            // Results are added as soon as available, so remote ones show up in the popup while it is open
+            Consumer<List<LookupElementBuilder>> consumer = result -> {
+                List<? extends LookupElement> items = new LinkedList<>();
+                CompletionHelper.addElements(items, result, 1000);
+                resultSet.addAllElements(items);
+            };
             if (depSuggest.isEnumerated()) {
-                result = depSuggest.enumeration().stream().map(version -> LookupElementBuilder
+                consumer.accept(depSuggest.enumeration().stream().map(version -> LookupElementBuilder
                                 .create(version)
                                 .withIcon(AllIcons.Nodes.PpLibFolder))
-                        .toList();
+                        .toList());
             } else if (depSuggest.versionOnly()) {
-                result = CompletionHelper.findVersions(module, content);
+                CompletionHelper.findVersions(module, content, consumer);
             } else {
-                result = CompletionHelper.findDependenciesVariants(module, content, true);
+                CompletionHelper.findDependenciesVariants(module, content, true, consumer);
             }
-            List<? extends LookupElement> items = new LinkedList<>();
-            CompletionHelper.addElements(items, result, 1000);
-            resultSet.addAllElements(items);
             resultSet.stopHere();
         }
     }
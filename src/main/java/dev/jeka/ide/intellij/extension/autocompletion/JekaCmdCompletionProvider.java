@@ -1,6 +1,5 @@
 package dev.jeka.ide.intellij.extension.autocompletion;
 
-import com.github.weisj.jsvg.L;
 import com.google.common.base.Strings;
 import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.codeInsight.completion.PrioritizedLookupElement;
@@ -8,19 +7,20 @@ import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.module.Module;
-import com.intellij.psi.PsiAnnotation;
-import com.intellij.psi.PsiField;
 import com.intellij.util.TextFieldCompletionProvider;
-import dev.jeka.core.api.depmanagement.JkDepSuggest;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.ide.intellij.common.PsiHelper;
-import dev.jeka.ide.intellij.panel.explorer.tree.*;
+import dev.jeka.ide.intellij.common.model.KBeanFieldModel;
+import dev.jeka.ide.intellij.common.model.KBeanMembers;
+import dev.jeka.ide.intellij.common.model.KBeanMethodModel;
+import dev.jeka.ide.intellij.common.model.KBeanModel;
+import dev.jeka.ide.intellij.engine.KBeanModelService;
+import icons.JekaIcons;
 import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import javax.swing.tree.TreeNode;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
@@ -63,104 +63,100 @@ public class JekaCmdCompletionProvider extends TextFieldCompletionProvider {
         if (module == null) {
             return Collections.emptyList();
         }
-        final JekaToolWindowTreeService treeService = module.getProject().getService(JekaToolWindowTreeService.class);
-        BeanComparator beanComparator = new BeanComparator();
+        final KBeanModelService kbeanModelService = KBeanModelService.getInstance(module.getProject());
         if (!prefix.contains("#")) {
-            List<BeanNode> allBeans = treeService.getKbeans(module);
-            Collections.sort(allBeans, beanComparator);
+            List<KBeanModel> allBeans = allKBeans(module);
             if (allBeans.isEmpty()) {
                 return Collections.emptyList();
             }
             List<LookupElementBuilder> result = new LinkedList<>();
-            for (BeanNode beanNode : allBeans) {
-                if (beanNode.isLocal()) {
-                    result.addAll(findSuggestForBean(beanNode, prefix, includeMethods));
+            for (KBeanModel kbean : allBeans) {
+                if (kbean.isLocal()) {
+                    result.addAll(findSuggestForBean(kbean, prefix, includeMethods, module));
                 } else {
-                    CompletionHelper.addElement(result, 10, LookupElementBuilder.create(beanNode.getName() + "#")
-                            .withTailText(" " + Strings.nullToEmpty(beanNode.getDefinition()))
-                            .withIcon(BeanNode.ICON));
+                    CompletionHelper.addElement(result, 10, LookupElementBuilder.create(kbean.getName() + "#")
+                            .withTailText(" " + Strings.nullToEmpty(kbean.getDefinition()))
+                            .withIcon(JekaIcons.KBEAN));
                 }
             }
             return result;
         };
         String beanName = JkUtilsString.substringBeforeFirst(prefix, "#");
-        BeanNode bean = treeService.getKbeans(module).stream()
-                .filter(beanNode -> beanNode.getName().equals(beanName))
+        KBeanModel bean = kbeanModelService.getKBeans(module).stream()
+                .filter(kbean -> kbean.getName().equals(beanName))
                 .findFirst().orElse(null);
         if (bean == null) {
             return Collections.emptyList();
         }
-        return findSuggestForBean(bean, prefix, includeMethods);
+        return findSuggestForBean(bean, prefix, includeMethods, module);
     }
 
     static List<LookupElementBuilder> findKBeanSuggests(Module module, String prefix) {
         List<LookupElementBuilder> result = new LinkedList<>();
-        for (BeanNode beanNode : allKBeans(module)) {
-            CompletionHelper.addElement(result, 10, LookupElementBuilder.create(prefix + beanNode.getClassName())
-                        .withPresentableText(beanNode.getName())
-                        .withTailText(" " + Strings.nullToEmpty(beanNode.getDefinition()))
-                        .withIcon(BeanNode.ICON));
+        for (KBeanModel kbean : allKBeans(module)) {
+            CompletionHelper.addElement(result, 10, LookupElementBuilder.create(prefix + kbean.getClassName())
+                        .withPresentableText(kbean.getName())
+                        .withTailText(" " + Strings.nullToEmpty(kbean.getDefinition()))
+                        .withIcon(JekaIcons.KBEAN));
         }
         return result;
     }
 
-    private static List<BeanNode> allKBeans(Module module) {
+    private static List<KBeanModel> allKBeans(Module module) {
         if (module == null) {
             return Collections.emptyList();
         }
-        final JekaToolWindowTreeService treeService = module.getProject().getService(JekaToolWindowTreeService.class);
-        BeanComparator beanComparator = new BeanComparator();
-        return treeService.getKbeans(module).stream().sorted(beanComparator).toList();
+        KBeanModelService kbeanModelService = KBeanModelService.getInstance(module.getProject());
+        return kbeanModelService.getKBeans(module).stream().sorted(new BeanComparator()).toList();
     }
 
-    private static List<LookupElementBuilder> findSuggestForBean(BeanNode bean, String prefix, boolean includeMethods) {
+    private static List<LookupElementBuilder> findSuggestForBean(KBeanModel bean, String prefix,
+                                                                 boolean includeMethods, Module module) {
         String beanName = bean.getName();
+        KBeanMembers members = KBeanModelService.getInstance(module.getProject()).getMembers(module, bean);
         List<LookupElementBuilder> result = new LinkedList<>();
-        List<TreeNode> members = Collections.list(bean.children());
-        Collections.sort(members, new MemberComparator());
-        for (TreeNode member : members) {
-            if (member instanceof FieldNode) {
-                FieldNode fieldNode = (FieldNode) member;
-                List<LookupElementBuilder> fieldElements = createFieldElements(fieldNode, prefix);
-                //result.addAll(fieldElements);
-                CompletionHelper.addElements(result, fieldElements, 20);
-            } else if (member instanceof MethodNode  && includeMethods) {
-                MethodNode methodNode = (MethodNode) member;
-                CompletionHelper.addElement(result, 30, LookupElementBuilder.create(beanName + "#" + methodNode)
+        if (includeMethods) {
+            List<KBeanMethodModel> methods = new LinkedList<>(members.getMethods());
+            methods.sort(new MethodComparator());
+            for (KBeanMethodModel method : methods) {
+                CompletionHelper.addElement(result, 30, LookupElementBuilder.create(beanName + "#" + method.getName())
                         .withBoldness(bean.isLocal())
-                        .withPresentableText(methodNode.toString())
-                        .withTailText(" " + Strings.nullToEmpty(methodNode.getTooltipText()))
-                        .withIcon(MethodNode.ICON)
+                        .withPresentableText(method.getName())
+                        .withTailText(" " + Strings.nullToEmpty(method.getTooltipText()))
+                        .withIcon(JekaIcons.COMMAND)
                 );
             }
         }
+        for (KBeanFieldModel field : members.getFields()) {
+            List<LookupElementBuilder> fieldElements = createFieldElements(bean, field, prefix, module);
+            CompletionHelper.addElements(result, fieldElements, 20);
+        }
         return result;
     }
 
-    private static List<LookupElementBuilder> createFieldElements(FieldNode fieldNode, String prefix) {
+    private static List<LookupElementBuilder> createFieldElements(KBeanModel bean, KBeanFieldModel field,
+                                                                  String prefix, Module module) {
         String fieldPrefix = JkUtilsString.substringAfterLast(prefix, "#");
-        if (fieldNode.isLeaf()) {
-            return fieldElements(fieldNode, prefix);
+        if (field.isLeaf()) {
+            return fieldElements(bean, field, field.getName(), prefix, module);
         }
-        List<LookupElementBuilder> result = fieldNode.extend().stream()
-                .filter(subNode -> fieldPrefix.startsWith(subNode.getCloserParentOfType(FieldNode.class).prefixedName()) )
-                .flatMap(subnode -> fieldElements(subnode, prefix).stream())
+        List<LookupElementBuilder> result = field.leaves(field.getName()).entrySet().stream()
+                .filter(leaf -> fieldPrefix.startsWith(KBeanFieldModel.parentPrefixedName(leaf.getKey())))
+                .flatMap(leaf -> fieldElements(bean, leaf.getValue(), leaf.getKey(), prefix, module).stream())
                 .collect(Collectors.toList());
         if (result.isEmpty()) {
-            return Collections.singletonList(fieldElement(fieldNode, "."));
+            return Collections.singletonList(fieldElement(bean, field, field.getName(), "."));
         }
         return result;
     }
 
-    private static List<LookupElementBuilder> fieldElements(FieldNode fieldNode, String prefix) {
-        List<String> predefinedValues = fieldNode.getAcceptedValues();
+    private static List<LookupElementBuilder> fieldElements(KBeanModel bean, KBeanFieldModel field,
+                                                            String prefixedName, String prefix, Module module) {
+        List<String> predefinedValues = field.getAcceptedValues();
 
         // Find dependencies/version for field annotated with @JkDepSuggest
-        PsiField psiField = fieldNode.getPsiField();
-        PsiAnnotation psiAnnotation = psiField.getAnnotation(JkDepSuggest.class.getName());
-        if (psiAnnotation != null) {
-            PsiHelper.DependencySuggest depSuggest = PsiHelper.toDepSuggest(psiAnnotation);
-            Module module = fieldNode.getCloserParentOfType(ModuleNode.class).getModule();
+        PsiHelper.DependencySuggest depSuggest = field.getDepSuggest();
+        if (depSuggest != null) {
             final List<LookupElementBuilder> result;
             if (depSuggest.isEnumerated()) {
                 result = depSuggest.enumeration().stream().map(version -> LookupElementBuilder
@@ -179,62 +175,56 @@ public class JekaCmdCompletionProvider extends TextFieldCompletionProvider {
 
         if (!predefinedValues.isEmpty() && prefix.contains("=")) {
             return predefinedValues.stream()
-                    .map(value -> fieldElement(fieldNode, "=" + value))
+                    .map(value -> fieldElement(bean, field, prefixedName, "=" + value))
                     .toList();
         }
-        return Collections.singletonList(fieldElement(fieldNode, "="));
+        return Collections.singletonList(fieldElement(bean, field, prefixedName, "="));
     }
 
-    private static LookupElementBuilder fieldElement(FieldNode fieldNode, String suffix) {
-        BeanNode beanNode = fieldNode.getCloserParentOfType(BeanNode.class);
+    private static LookupElementBuilder fieldElement(KBeanModel bean, KBeanFieldModel field, String prefixedName,
+                                                     String suffix) {
         boolean showValue = suffix.contains("=") && !suffix.endsWith("=");
         String presentableName =  showValue ?
                 JkUtilsString.substringAfterLast(suffix, "=")
-                : fieldNode + (suffix.equals(".") ? "..." : suffix);
-        Icon icon = showValue ? AllIcons.Nodes.Enum : FieldNode.ICON;
-        String tailText = showValue ? "" : " " + Strings.nullToEmpty(fieldNode.getTooltipText());
-        if (fieldNode.getDeclaration() != null) {
-            tailText = tailText + "(" + fieldNode.getDeclaration() + ")";
+                : field.getName() + (suffix.equals(".") ? "..." : suffix);
+        Icon icon = showValue ? AllIcons.Nodes.Enum : AllIcons.Nodes.Parameter;
+        String tailText = showValue ? "" : " " + Strings.nullToEmpty(field.getTooltipText());
+        if (field.getDeclaration() != null) {
+            tailText = tailText + "(" + field.getDeclaration() + ")";
         }
-        return  LookupElementBuilder.create(beanNode.getName() + "#" + fieldNode.prefixedName() + suffix )
-                .withBoldness(beanNode.isLocal())
+        return  LookupElementBuilder.create(bean.getName() + "#" + prefixedName + suffix )
+                .withBoldness(bean.isLocal())
                 .withPresentableText(presentableName)
                 .withTailText(tailText)
                 .withIcon(icon);
     }
 
-    private static class BeanComparator implements Comparator<BeanNode> {
+    private static class BeanComparator implements Comparator<KBeanModel> {
 
         @Override
-        public int compare(BeanNode bean1, BeanNode bean2) {
+        public int compare(KBeanModel bean1, KBeanModel bean2) {
             if (bean1.isLocal() && !bean2.isLocal()) {
                 return -1;
             }
             if (!bean1.isLocal() && bean2.isLocal()) {
                 return 1;
             }
-            if (BeanNode.UNPRIORIZEDS.contains(bean1.getName())) {
+            if (bean1.isUnpriorized()) {
                 return 1;
             }
-            if (BeanNode.UNPRIORIZEDS.contains(bean2.getName())) {
+            if (bean2.isUnpriorized()) {
                 return -1;
             }
             return 0;
         }
     }
 
-    private static class MemberComparator implements Comparator<TreeNode> {
+    private static class MethodComparator implements Comparator<KBeanMethodModel> {
 
         @Override
-        public int compare(TreeNode member1, TreeNode member2) {
-            if (member1 instanceof MethodNode && member2 instanceof FieldNode) {
-                return -1;
-            }
-            if (member1 instanceof MethodNode) {
-                MethodNode methodNode1 = (MethodNode) member1;
-                if (methodNode1.toString().equals("help")) {
-                    return 1;
-                }
+        public int compare(KBeanMethodModel method1, KBeanMethodModel method2) {
+            if (method1.getName().equals("help")) {
+                return 1;
             }
             return 0;
         }
@@ -0,0 +1,312 @@
+package dev.jeka.ide.intellij.extension.autocompletion;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.system.JkLocator;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of the modules and versions already downloaded in the Jeka repository cache and in the local Maven
+ * repository, so that completion can suggest them instantly and without network.
+ * <p>
+ * The index is built in background, then rebuilt periodically when queried. A rebuild first checks the
+ * modification time of the dirs scanned previously, recorded in a {@link ScannedDirsFile}, so that it costs about
+ * one <i>stat</i> per dir when nothing has been downloaded meanwhile.
+ * <p>
+ * Module ids and their versions, along with module ids returned by cached remote searches, are stored in a
+ * memory-mapped {@link CoordinateTable} persisted in the IDE system dir, so that they are searchable right after
+ * restart without being held on heap.
+ */
+@Service
+public final class LocalCoordinateIndex implements Disposable {
+
+    private static final Logger LOGGER = Logger.getInstance(LocalCoordinateIndex.class);
+
+    private static final long RESCAN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int MAX_RESULTS = 200;
+
+    private static final int MIN_FUZZY_CRITERIA_LENGTH = 3;
+
+    // fuzzy matching scans the whole table, so it only completes prefix matches when these are few
+    private static final int MAX_PREFIX_MATCHES_FOR_FUZZY = 20;
+
+    private static final long FUZZY_SCAN_TIMEOUT_MILLIS = 50;
+
+    private static final String TABLE_FILE_PREFIX = "coordinate-table-";
+
+    private static final String SCANNED_DIRS_FILE = "coordinate-scanned-dirs.bin";
+
+    // group segments + artifact + version
+    private static final int MAX_MAVEN_DEPTH = 12;
+
+    private volatile CoordinateTable table;
+
+    private volatile FuzzySearch lastFuzzySearch;
+
+    private long lastScanMillis;
+
+    private Future<?> scan;
+
+    public static LocalCoordinateIndex getInstance() {
+        return ApplicationManager.getApplication().getService(LocalCoordinateIndex.class);
+    }
+
+    /**
+     * Returns coordinates known locally, matching the specified criteria : <i>group:name:versionPrefix</i> returns
+     * versions downloaded locally as <i>group:name:version</i> items. Other criteria return <i>group:name</i> items
+     * starting with the criteria, then items whose name starts with the criteria, followed by items matching it in
+     * a camel-hump and typo tolerant way when there are few of those.
+     */
+    public List<String> search(String criteria) {
+        requestScan();
+        CoordinateTable coordinateTable = table();
+        String[] parts = criteria.split(":", -1);
+        if (parts.length >= 3) {
+            String moduleId = parts[0] + ":" + parts[1];
+            List<String> result = new LinkedList<>();
+            for (String version : coordinateTable.versions(moduleId)) {
+                if (version.startsWith(parts[2])) {
+                    result.add(moduleId + ":" + version);
+                }
+            }
+            return result;
+        }
+        if (criteria.isBlank()) {
+            return new LinkedList<>();
+        }
+        Set<String> result = new LinkedHashSet<>(coordinateTable.prefixMatches(criteria, MAX_RESULTS));
+        if (!criteria.contains(":")) {
+            result.addAll(coordinateTable.namePrefixMatches(criteria, MAX_RESULTS - result.size()));
+        }
+        if (result.size() < MAX_PREFIX_MATCHES_FOR_FUZZY
+                && criteria.replace(":", "").length() >= MIN_FUZZY_CRITERIA_LENGTH) {
+            result.addAll(fuzzyMatches(coordinateTable, criteria, result));
+        }
+        return new LinkedList<>(result);
+    }
+
+    /**
+     * Rebuilds the index in background, unless it has been rebuilt recently or is being rebuilt.
+     */
+    public synchronized void requestScan() {
+        if ((scan != null && !scan.isDone())
+                || System.currentTimeMillis() - lastScanMillis < RESCAN_INTERVAL_MILLIS) {
+            return;
+        }
+        scan = ApplicationManager.getApplication().executeOnPooledThread(this::scan);
+    }
+
+    private void scan() {
+        long start = System.currentTimeMillis();
+        Set<String> knownModuleIds = CoordinateSearchCache.getInstance().getKnownModuleIds();
+        Path scannedDirsFile = tableDir().resolve(SCANNED_DIRS_FILE);
+        if (!ScannedDirsFile.isUpToDate(scannedDirsFile, knownModuleIds.hashCode())) {
+            try (ScannedDirsFile.Writer scannedDirs = ScannedDirsFile.writer(scannedDirsFile,
+                    knownModuleIds.hashCode())) {
+                SortedMap<String, NavigableSet<String>> result = new TreeMap<>();
+                scanJekaCache(JkLocator.getCacheDir().resolve("repo"), result, scannedDirs);
+                Path mavenRepo = Paths.get(System.getProperty("user.home"), ".m2", "repository");
+                scanMavenDir(mavenRepo, listing(mavenRepo, scannedDirs), new LinkedList<>(), result, scannedDirs, 0);
+                knownModuleIds.forEach(moduleId -> result.computeIfAbsent(moduleId, key -> newVersionSet()));
+                if (table().checksum() == CoordinateTable.checksum(result) || writeTable(result)) {
+                    scannedDirs.commit();
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Cannot index local repositories", e);
+            }
+            LOGGER.debug("Local repositories indexed in " + (System.currentTimeMillis() - start) + " ms");
+        }
+        synchronized (this) {
+            lastScanMillis = System.currentTimeMillis();
+        }
+    }
+
+    // Completion is queried again on each keystroke, so the last fuzzy scan is reused for an unchanged criteria
+    private List<String> fuzzyMatches(CoordinateTable coordinateTable, String criteria, Set<String> excluded) {
+        FuzzySearch last = lastFuzzySearch;
+        if (last != null && last.table() == coordinateTable && last.criteria().equals(criteria)) {
+            return last.matches();
+        }
+        List<String> matches = coordinateTable.fuzzyMatches(criteria, MAX_RESULTS - excluded.size(), excluded,
+                FUZZY_SCAN_TIMEOUT_MILLIS);
+        lastFuzzySearch = new FuzzySearch(coordinateTable, criteria, matches);
+        return matches;
+    }
+
+    // Jeka cache uses the Ivy layout : [group]/[name]/ivy-[version].xml
+    private static void scanJekaCache(Path root, Map<String, NavigableSet<String>> result,
+                                      ScannedDirsFile.Writer scannedDirs) {
+        for (String group : listing(root, scannedDirs).dirNames) {
+            Path groupDir = root.resolve(group);
+            for (String name : listing(groupDir, scannedDirs).dirNames) {
+                for (String fileName : listing(groupDir.resolve(name), scannedDirs).fileNames) {
+                    if (fileName.startsWith("ivy-") && fileName.endsWith(".xml")) {
+                        String version = fileName.substring("ivy-".length(), fileName.length() - ".xml".length());
+                        addVersion(result, group + ":" + name, version);
+                    }
+                }
+            }
+        }
+    }
+
+    // Maven layout : [group as dirs]/[name]/[version]/[name]-[version].pom
+    // Children listed while probing for versions are reused when recursing, so each dir is listed once.
+    private static void scanMavenDir(Path dir, DirListing listing, LinkedList<String> segments,
+                                     Map<String, NavigableSet<String>> result, ScannedDirsFile.Writer scannedDirs,
+                                     int depth) {
+        if (depth > MAX_MAVEN_DEPTH) {
+            return;
+        }
+        Map<String, DirListing> childListings = new HashMap<>();
+        boolean isModuleDir = false;
+        if (!segments.isEmpty()) {
+            String name = segments.getLast();
+            for (String version : listing.dirNames) {
+                DirListing versionListing = listing(dir.resolve(version), scannedDirs);
+                childListings.put(version, versionListing);
+                if (versionListing.fileNames.contains(name + "-" + version + ".pom")) {
+                    isModuleDir = true;
+                    String group = String.join(".", segments.subList(0, segments.size() - 1));
+                    addVersion(result, group + ":" + name, version);
+                }
+            }
+        }
+        if (isModuleDir) {
+            return;
+        }
+        for (String child : listing.dirNames) {
+            Path childDir = dir.resolve(child);
+            DirListing childListing = childListings.remove(child);
+            if (childListing == null) {
+                childListing = listing(childDir, scannedDirs);
+            }
+            segments.addLast(child);
+            scanMavenDir(childDir, childListing, segments, result, scannedDirs, depth + 1);
+            segments.removeLast();
+        }
+    }
+
+    private CoordinateTable table() {
+        CoordinateTable result = table;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            if (table == null) {
+                table = openLatestTable();
+            }
+            return table;
+        }
+    }
+
+    private static CoordinateTable openLatestTable() {
+        List<Path> files = tableFiles();
+        if (files.isEmpty()) {
+            return CoordinateTable.EMPTY;
+        }
+        Path latest = files.get(files.size() - 1);
+        try {
+            return CoordinateTable.open(latest);
+        } catch (IOException e) {
+            LOGGER.info("Cannot open " + latest + ". It will be rebuilt.", e);
+            return CoordinateTable.EMPTY;
+        }
+    }
+
+    // Each table is written in a new file, as a mapped file can not be overwritten on every OS
+    private boolean writeTable(SortedMap<String, NavigableSet<String>> versionsByModule) {
+        Path file = tableDir().resolve(TABLE_FILE_PREFIX + System.currentTimeMillis() + ".bin");
+        try {
+            table = CoordinateTable.write(file, versionsByModule);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write " + file, e);
+            return false;
+        }
+        for (Path oldFile : tableFiles()) {
+            if (!oldFile.equals(file)) {
+                try {
+                    Files.deleteIfExists(oldFile);
+                } catch (IOException e) {
+                    // still mapped : deleted on a next rebuild
+                }
+            }
+        }
+        return true;
+    }
+
+    private static List<Path> tableFiles() {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(tableDir(), TABLE_FILE_PREFIX + "*.bin")) {
+            stream.forEach(result::add);
+        } catch (IOException e) {
+            return result;
+        }
+        result.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        return result;
+    }
+
+    private static Path tableDir() {
+        return PathManager.getSystemDir().resolve("jeka");
+    }
+
+    private static void addVersion(Map<String, NavigableSet<String>> result, String moduleId, String version) {
+        result.computeIfAbsent(moduleId, key -> newVersionSet()).add(version);
+    }
+
+    private static NavigableSet<String> newVersionSet() {
+        return new TreeSet<>(JkVersion.VERSION_COMPARATOR.reversed());
+    }
+
+    // Lists the specified dir, recording its modification time so that the next rebuild can tell if it changed
+    private static DirListing listing(Path dir, ScannedDirsFile.Writer scannedDirs) {
+        long lastModified = ScannedDirsFile.modificationTime(dir);
+        scannedDirs.add(dir, lastModified);
+        if (lastModified < 0) {
+            return DirListing.EMPTY;
+        }
+        List<String> dirNames = new LinkedList<>();
+        Set<String> fileNames = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                String name = child.getFileName().toString();
+                if (Files.isDirectory(child)) {
+                    dirNames.add(name);
+                } else {
+                    fileNames.add(name);
+                }
+            }
+        } catch (IOException e) {
+            return DirListing.EMPTY;
+        }
+        return new DirListing(dirNames, fileNames);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (scan != null) {
+            scan.cancel(true);
+        }
+    }
+
+    private record DirListing(List<String> dirNames, Set<String> fileNames) {
+
+        static final DirListing EMPTY = new DirListing(List.of(), Set.of());
+    }
+
+    private record FuzzySearch(CoordinateTable table, String criteria, List<String> matches) {
+    }
+
+}
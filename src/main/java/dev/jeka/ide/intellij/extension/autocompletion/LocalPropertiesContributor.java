@@ -13,20 +13,11 @@ import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.util.ProcessingContext;
-import dev.jeka.core.api.depmanagement.JkCoordinateSearch;
-import dev.jeka.core.api.depmanagement.JkRepoSet;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.tool.JkConstants;
-import dev.jeka.core.tool.JkExternalToolApi;
-import dev.jeka.ide.intellij.common.JdksHelper;
-import dev.jeka.ide.intellij.common.ModuleHelper;
-import lombok.Value;
 import org.jetbrains.annotations.NotNull;
 
-import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 public class LocalPropertiesContributor extends CompletionContributor {
 
@@ -51,9 +42,7 @@ public class LocalPropertiesContributor extends CompletionContributor {
 
     private static class CmdCompletionProvider extends CompletionProvider {
 
-        private final Map<String, List<Entry>> keySuggests = new LinkedHashMap<>();
-
-        private final Map<String, Function<Module, List<String>>> valueSuggests = new LinkedHashMap<>();
+        private final LocalPropertiesSchema schema = LocalPropertiesSchema.DEFAULT;
 
         @Override
         protected void addCompletions(@NotNull CompletionParameters parameters, @NotNull ProcessingContext context,
@@ -66,18 +55,17 @@ public class LocalPropertiesContributor extends CompletionContributor {
             // Psi element of the cursor. Can be propertyKey, equals symbol or propertyValue
             PropertyContext propertyContext = new PropertyContext(parameters);
             int index = 1000;
-            init(propertyContext.module);
             if (propertyContext.isKey() && propertyContext.prefix.isEmpty()) {
 
                 // Add suggest for toplevel keys as jeka.java.version
-                for (Entry entry : keySuggests.getOrDefault("", new LinkedList<>())) {
-                    CompletionHelper.addElement(result, index, LookupElementBuilder.create(entry.name)
-                            .withTailText(entry.desc));
+                for (LocalPropertiesSchema.KeyEntry entry : schema.getKeys("")) {
+                    CompletionHelper.addElement(result, index, LookupElementBuilder.create(entry.getName())
+                            .withTailText(entry.getDesc()));
                     index--;
                 }
 
                 // Add suggest for first level keys as jeka.repos...
-                for (String keyPrefix : keySuggests.keySet()) {
+                for (String keyPrefix : schema.getKeyPrefixes()) {
                     if (keyPrefix.isEmpty()) {
                         continue;
                     }
@@ -90,11 +78,11 @@ public class LocalPropertiesContributor extends CompletionContributor {
             if (propertyContext.isKey()) {
 
                 // add key suggest as 'jeka.repos.download='
-                for (String keyPrefix : keySuggests.keySet()) {
+                for (String keyPrefix : schema.getKeyPrefixes()) {
                     if (propertyContext.getItemFullText().trim().startsWith(keyPrefix)) {
-                        for (Entry entry : keySuggests.getOrDefault(keyPrefix, new LinkedList<>())) {
-                            CompletionHelper.addElement(result, index, LookupElementBuilder.create(entry.name)
-                                    .withTailText(entry.desc));
+                        for (LocalPropertiesSchema.KeyEntry entry : schema.getKeys(keyPrefix)) {
+                            CompletionHelper.addElement(result, index, LookupElementBuilder.create(entry.getName())
+                                    .withTailText(entry.getDesc()));
                             index--;
                         }
                     }
@@ -111,12 +99,11 @@ public class LocalPropertiesContributor extends CompletionContributor {
             }
 
             // Suggest predefined values
-            for (String key : valueSuggests.keySet()) {
-                if (propertyContext.fullKey().equals(key)) {
-                    List<String> suggests = valueSuggests.get(key).apply(propertyContext.module);
-                    for (int i = 0; i < suggests.size(); i++) {
-                        CompletionHelper.addElement(result, suggests.size() - i, LookupElementBuilder.create(suggests.get(i)));
-                    }
+            List<String> predefinedValues = schema.getValues(propertyContext.fullKey(), propertyContext.module);
+            if (predefinedValues != null) {
+                for (int i = 0; i < predefinedValues.size(); i++) {
+                    CompletionHelper.addElement(result, predefinedValues.size() - i,
+                            LookupElementBuilder.create(predefinedValues.get(i)));
                 }
             }
 
@@ -145,8 +132,9 @@ public class LocalPropertiesContributor extends CompletionContributor {
             // suggest for jeka.classpath.inject
             if (!propertyContext.isKey() && JkConstants.CLASSPATH_INJECT_PROP.equals(propertyContext.fullKey())) {
                 String hint = propertyContext.prefix;
-                List<LookupElementBuilder> lookups = CompletionHelper.findDependenciesVariants(propertyContext.module, hint, true);
-                result.withPrefixMatcher(hint).addAllElements(lookups);
+                CompletionResultSet prefixedResult = result.withPrefixMatcher(hint);
+                CompletionHelper.findDependenciesVariants(propertyContext.module, hint, true,
+                        prefixedResult::addAllElements);
                 result.stopHere();;
                 return;
             }
@@ -156,76 +144,6 @@ public class LocalPropertiesContributor extends CompletionContributor {
             addValuesCompletions(parameters, propertyContext.lineText, result);
         }
 
-        private void init(Module module) {
-            suggestKey("", "jeka.java.version=", "Java version to compile build and regular (e.g. 8, 11, 14, 17,...)");
-            suggestKey("", "jeka.kotlin.version=", "Kotlin version to compile build and regular code");
-            suggestKey("", "jeka.classpath.inject=", "Space separated list of dependencies to add to classpath");
-            suggestKey("", "jeka.default.kbean=", "KBean to use when omitting KBean prefixes");
-            suggestKey("", "jeka.jdk.xx=", "Path of the JDK to use for version XX. Example : jeka.jdk.17=/software/jdks/corretto-17.0.5");
-            suggestKey("jeka.cmd.", "_append=", "append the following text to all commands definined here. Typically used to add plugins in classpath or logging parameters");
-            suggestKey("jeka.cmd.", "xxx=", "Define a command shortcut, callable using 'jeka :xxx'");
-            suggestKey("jeka.repos.", "download=", "Comma separated repository urls (or repo reference) to download artefacts (default is Maven central)." );
-            suggestKey("jeka.repos.", "download.username=", "Username credential to connect to download repo." );
-            suggestKey("jeka.repos.", "download.password=", "Password credential to connect to download repo." );
-            suggestKey("jeka.repos.", "download.headers.[httpHeaderName]=", "HTTP header to include in request towards the repo" );
-            suggestKey("jeka.repos.", "publish=", "Comma separated repository urls for publish repos." );
-            suggestKey("jeka.repos.", "publish.username=", "Username credential to connect to publish repo." );
-            suggestKey("jeka.repos.", "publish.password=", "Password credential to connect to publish repo." );
-            suggestKey("jeka.repos.", "publish.headers.[httpHeaderName]=", "HTTP header to include in request towards the repo" );
-            suggestKey("jeka.repos.", "[repoName]=", "Comma separated of repository names to be used as a set for the named repo." );
-            suggestKey("jeka.repos.", "[repoName].username=", "Username credential to connect to repo." );
-            suggestKey("jeka.repos.", "[repoName].password=", "Password credential to connect to repo." );
-            suggestKey("jeka.repos.", "[repoName].headers.[httpHeaderName]=", "HTTP header to include in request towards the repo." );
-
-            suggestKey("sonar.", "host.url=", "The Sonarqube url to send analysis data." );
-            suggestKey("sonar.", "token=", "The authorisation token for send analysis data." );
-            suggestKey("sonar.", "verbose=", "If the scanner logs should be verbose." );
-            suggestKey("sonar.", "log.level=", "Log level for the scanner (INFO, TRACE, DEBUG)." );
-            suggestKey("sonar.", "working.directory", "The working directory for the Sonarqube scanner." );
-            suggestKey("sonar.", "projectKey=", "The project key to use for sending analysis data.");
-            suggestKey("sonar.", "projectName=", "The project name to use for sending analysis data.");
-            suggestKey("sonar.", "projectVersion=", "The project version to use for sending analysis data.");
-            suggestKey("sonar.", "analysis.xxx=", "Custom key/value pair to insert in analysis.");
-            suggestKey("sonar.", "language=", "The language used by the project to analyse (java, javascript,.....");
-
-
-            suggestValues("jeka.java.version", "21", "17", "11", "8");
-            suggestValuesWithVersions("jeka.kotlin.version", module, "org.jetbrains.kotlin:kotlin-stdlib");
-
-            valueSuggests.put("intellij#jdkName", module1 -> JdksHelper.availableSdkNames());
-        }
-
-        private void suggestKey(String prefix, String name, String desc) {
-            keySuggests.putIfAbsent(prefix, new LinkedList<>());
-            keySuggests.get(prefix).add(new Entry(prefix + name, desc));
-        }
-
-        private void suggestValues(String key, String ... values) {
-            valueSuggests.put(key , module1 -> Arrays.asList(values));
-        }
-
-        private void suggestValuesWithVersions(String key, Module module, String moduleId) {
-            valueSuggests.put(key , module1 -> getSuggestVersionFor(module,moduleId));
-        }
-
-        private List<String> getSuggestVersionFor(Module module, String moduleId) {
-            Path rootDir = ModuleHelper.getModuleDirPath(module);
-            JkRepoSet repoSet = JkExternalToolApi.getDownloadRepos(rootDir);
-            return JkCoordinateSearch.of(repoSet.getRepos().get(0))
-                    .setGroupOrNameCriteria(moduleId + ":")
-                    .search()
-                    .stream()
-                    .map(value -> JkUtilsString.substringAfterLast(value, ":"))
-                    .sorted(Comparator.reverseOrder())
-                    .collect(Collectors.toList());
-        }
-
-        @Value
-        static class Entry {
-            String name;
-            String desc;
-        }
-
         private void addValuesCompletions(@NotNull CompletionParameters parameters, String lineText,
                                       @NotNull CompletionResultSet result) {
 
@@ -264,8 +182,8 @@ public class LocalPropertiesContributor extends CompletionContributor {
                 // Add deps suggest if starting with @
                 if (prefix.startsWith("@")) {
                     String hint = prefix.substring(1);
-                    List<LookupElementBuilder> lookups = CompletionHelper.findDependenciesVariants(module, hint, true);
-                    result.withPrefixMatcher(hint).addAllElements(lookups);
+                    CompletionResultSet prefixedResult = result.withPrefixMatcher(hint);
+                    CompletionHelper.findDependenciesVariants(module, hint, true, prefixedResult::addAllElements);
                     result.stopHere();;
                     return;
                 }
@@ -0,0 +1,167 @@
+package dev.jeka.ide.intellij.extension.autocompletion;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Key;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.ide.intellij.common.JdksHelper;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable schema of the keys and values suggested in <i>jeka.properties</i> files. Keys are grouped by prefix
+ * (<i>jeka.repos.</i>, <i>sonar.</i>, ...), the empty prefix holding top-level keys.
+ * <p>
+ * The default schema is built once for the whole application. Keys declared by KBeans are not part of it : they
+ * are suggested from the KBean model. Values are provided per module, computed lazily and cached on the module for
+ * a limited time.
+ */
+final class LocalPropertiesSchema {
+
+    private static final Key<Map<String, CachedValues>> CACHED_VALUES_KEY =
+            Key.create("jeka.localPropertiesSchema.values");
+
+    static final LocalPropertiesSchema DEFAULT = createDefault();
+
+    private final Map<String, List<KeyEntry>> keysByPrefix;
+
+    private final Map<String, ValueProvider> valueProviders;
+
+    private LocalPropertiesSchema(Map<String, List<KeyEntry>> keysByPrefix,
+                                  Map<String, ValueProvider> valueProviders) {
+        this.keysByPrefix = keysByPrefix;
+        this.valueProviders = valueProviders;
+    }
+
+    Set<String> getKeyPrefixes() {
+        return keysByPrefix.keySet();
+    }
+
+    List<KeyEntry> getKeys(String prefix) {
+        return keysByPrefix.getOrDefault(prefix, List.of());
+    }
+
+    /**
+     * Returns values suggested for the specified key in the specified module, or <code>null</code> if the key
+     * has no value provider.
+     */
+    @Nullable
+    List<String> getValues(String key, Module module) {
+        ValueProvider provider = valueProviders.get(key);
+        if (provider == null) {
+            return null;
+        }
+        if (module == null || module.isDisposed()) {
+            return provider.compute.apply(module);
+        }
+        Map<String, CachedValues> cache = module.getUserData(CACHED_VALUES_KEY);
+        if (cache == null) {
+            cache = module.putUserDataIfAbsent(CACHED_VALUES_KEY, new ConcurrentHashMap<>());
+        }
+        CachedValues cached = cache.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.timestamp < provider.ttlMillis) {
+            return cached.values;
+        }
+        List<String> values = List.copyOf(provider.compute.apply(module));
+        if (!values.isEmpty()) {  // empty may come from a remote search that has timed out
+            cache.put(key, new CachedValues(System.currentTimeMillis(), values));
+        }
+        return values;
+    }
+
+    private static LocalPropertiesSchema createDefault() {
+        Builder builder = new Builder();
+        builder.key("", "jeka.java.version=", "Java version to compile build and regular (e.g. 8, 11, 14, 17,...)");
+        builder.key("", "jeka.kotlin.version=", "Kotlin version to compile build and regular code");
+        builder.key("", "jeka.classpath.inject=", "Space separated list of dependencies to add to classpath");
+        builder.key("", "jeka.default.kbean=", "KBean to use when omitting KBean prefixes");
+        builder.key("", "jeka.jdk.xx=", "Path of the JDK to use for version XX. Example : jeka.jdk.17=/software/jdks/corretto-17.0.5");
+        builder.key("jeka.cmd.", "_append=", "append the following text to all commands definined here. Typically used to add plugins in classpath or logging parameters");
+        builder.key("jeka.cmd.", "xxx=", "Define a command shortcut, callable using 'jeka :xxx'");
+        builder.key("jeka.repos.", "download=", "Comma separated repository urls (or repo reference) to download artefacts (default is Maven central)." );
+        builder.key("jeka.repos.", "download.username=", "Username credential to connect to download repo." );
+        builder.key("jeka.repos.", "download.password=", "Password credential to connect to download repo." );
+        builder.key("jeka.repos.", "download.headers.[httpHeaderName]=", "HTTP header to include in request towards the repo" );
+        builder.key("jeka.repos.", "publish=", "Comma separated repository urls for publish repos." );
+        builder.key("jeka.repos.", "publish.username=", "Username credential to connect to publish repo." );
+        builder.key("jeka.repos.", "publish.password=", "Password credential to connect to publish repo." );
+        builder.key("jeka.repos.", "publish.headers.[httpHeaderName]=", "HTTP header to include in request towards the repo" );
+        builder.key("jeka.repos.", "[repoName]=", "Comma separated of repository names to be used as a set for the named repo." );
+        builder.key("jeka.repos.", "[repoName].username=", "Username credential to connect to repo." );
+        builder.key("jeka.repos.", "[repoName].password=", "Password credential to connect to repo." );
+        builder.key("jeka.repos.", "[repoName].headers.[httpHeaderName]=", "HTTP header to include in request towards the repo." );
+
+        builder.key("sonar.", "host.url=", "The Sonarqube url to send analysis data." );
+        builder.key("sonar.", "token=", "The authorisation token for send analysis data." );
+        builder.key("sonar.", "verbose=", "If the scanner logs should be verbose." );
+        builder.key("sonar.", "log.level=", "Log level for the scanner (INFO, TRACE, DEBUG)." );
+        builder.key("sonar.", "working.directory", "The working directory for the Sonarqube scanner." );
+        builder.key("sonar.", "projectKey=", "The project key to use for sending analysis data.");
+        builder.key("sonar.", "projectName=", "The project name to use for sending analysis data.");
+        builder.key("sonar.", "projectVersion=", "The project version to use for sending analysis data.");
+        builder.key("sonar.", "analysis.xxx=", "Custom key/value pair to insert in analysis.");
+        builder.key("sonar.", "language=", "The language used by the project to analyse (java, javascript,.....");
+
+        builder.values("jeka.java.version", "21", "17", "11", "8");
+        builder.values("jeka.kotlin.version", TimeUnit.MINUTES.toMillis(10),
+                module -> versionsOf(module, "org.jetbrains.kotlin:kotlin-stdlib"));
+        builder.values("intellij#jdkName", TimeUnit.MINUTES.toMillis(1), module -> JdksHelper.availableSdkNames());
+        return builder.build();
+    }
+
+    private static List<String> versionsOf(Module module, String moduleId) {
+        List<String> suggests = new LinkedList<>();
+        CompletionHelper.searchCoordinates(module, moduleId + ":", (found, source) -> suggests.addAll(found));
+        return suggests.stream()
+                .map(value -> JkUtilsString.substringAfterLast(value, ":"))
+                .distinct()
+                .sorted(JkVersion.VERSION_COMPARATOR.reversed())
+                .collect(Collectors.toList());
+    }
+
+    @Value
+    static class KeyEntry {
+        String name;
+        String desc;
+    }
+
+    private record ValueProvider(long ttlMillis, Function<Module, List<String>> compute) {
+    }
+
+    private record CachedValues(long timestamp, List<String> values) {
+    }
+
+    private static final class Builder {
+
+        private final Map<String, List<KeyEntry>> keysByPrefix = new LinkedHashMap<>();
+
+        private final Map<String, ValueProvider> valueProviders = new LinkedHashMap<>();
+
+        void key(String prefix, String name, String desc) {
+            keysByPrefix.computeIfAbsent(prefix, k -> new ArrayList<>()).add(new KeyEntry(prefix + name, desc));
+        }
+
+        void values(String key, String ... values) {
+            List<String> valueList = List.of(values);
+            valueProviders.put(key, new ValueProvider(Long.MAX_VALUE, module -> valueList));
+        }
+
+        void values(String key, long ttlMillis, Function<Module, List<String>> compute) {
+            valueProviders.put(key, new ValueProvider(ttlMillis, compute));
+        }
+
+        LocalPropertiesSchema build() {
+            Map<String, List<KeyEntry>> keys = new LinkedHashMap<>();
+            keysByPrefix.forEach((prefix, entries) -> keys.put(prefix, List.copyOf(entries)));
+            return new LocalPropertiesSchema(Collections.unmodifiableMap(keys),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(valueProviders)));
+        }
+    }
+
+}
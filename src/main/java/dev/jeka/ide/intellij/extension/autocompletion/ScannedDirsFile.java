@@ -0,0 +1,126 @@
+package dev.jeka.ide.intellij.extension.autocompletion;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * File recording the modification time of each dir scanned to build the {@link LocalCoordinateIndex}, so that a
+ * rebuild can tell whether anything has been downloaded since, without holding an entry per dir on heap. The file
+ * is streamed, both when written and when checked.
+ * <p>
+ * File layout : hash of the module ids known from remote searches, then for each dir a <code>true</code> marker,
+ * the length of the prefix its path shares with the previous one, the rest of its path and its modification time,
+ * then a <code>false</code> marker. Dirs are written in scan order, so consecutive paths share most of their prefix.
+ */
+final class ScannedDirsFile {
+
+    private ScannedDirsFile() {
+    }
+
+    /**
+     * Returns <code>true</code> if the specified file has been completely written for the specified module ids,
+     * and no recorded dir has been modified since.
+     */
+    static boolean isUpToDate(Path file, int knownModuleIdsHash) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != knownModuleIdsHash) {
+                return false;
+            }
+            String previousPath = "";
+            while (in.readBoolean()) {
+                String path = previousPath.substring(0, in.readUnsignedShort()) + in.readUTF();
+                if (modificationTime(Paths.get(path)) != in.readLong()) {
+                    return false;
+                }
+                previousPath = path;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a writer replacing the specified file once {@link Writer#commit()} is called. A writer closed
+     * without being committed leaves the file unchanged.
+     */
+    static Writer writer(Path file, int knownModuleIdsHash) throws IOException {
+        return new Writer(file, knownModuleIdsHash);
+    }
+
+    // -1 for a missing dir, so that its creation is noticed
+    static long modificationTime(Path dir) {
+        try {
+            return Files.getLastModifiedTime(dir).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    static final class Writer implements Closeable {
+
+        private final Path file;
+
+        private final Path tempFile;
+
+        private final DataOutputStream out;
+
+        private String previousPath = "";
+
+        private boolean committed;
+
+        private Writer(Path file, int knownModuleIdsHash) throws IOException {
+            this.file = file;
+            this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.createDirectories(file.getParent());
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+            out.writeInt(knownModuleIdsHash);
+        }
+
+        void add(Path dir, long modificationTime) {
+            String path = dir.toString();
+            int sharedLength = Math.min(sharedPrefixLength(previousPath, path), 0xFFFF);
+            try {
+                out.writeBoolean(true);
+                out.writeShort(sharedLength);
+                out.writeUTF(path.substring(sharedLength));
+                out.writeLong(modificationTime);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            previousPath = path;
+        }
+
+        void commit() throws IOException {
+            out.writeBoolean(false);
+            out.close();
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (committed) {
+                return;
+            }
+            out.close();
+            Files.deleteIfExists(tempFile);
+        }
+
+        private static int sharedPrefixLength(String first, String second) {
+            int max = Math.min(first.length(), second.length());
+            int i = 0;
+            while (i < max && first.charAt(i) == second.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+}
@@ -9,6 +9,8 @@ import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.JBTextField;
 import com.intellij.ui.components.fields.ExtendableTextField;
 import com.intellij.util.ui.FormBuilder;
@@ -34,6 +36,24 @@ public class AppSettingsComponent {
     @Getter
     private JBTextField distributionPathText = new ExtendableTextField();
 
+    @Getter
+    private JBIntSpinner syncParallelismSpinner = new JBIntSpinner(0, 0, 64);
+
+    @Getter
+    private JBCheckBox useSyncDaemonCheckBox = new JBCheckBox("Use warm Jeka daemons");
+
+    @Getter
+    private JBCheckBox inProcessSyncCheckBox = new JBCheckBox("Generate iml in IDE process");
+
+    @Getter
+    private JBIntSpinner consoleBufferSpinner = new JBIntSpinner(1024, 64, 64 * 1024);
+
+    @Getter
+    private JBIntSpinner coordinateSearchTtlSpinner = new JBIntSpinner(24, 1, 24 * 30);
+
+    @Getter
+    private JBCheckBox projectModelSyncCheckBox = new JBCheckBox("Apply sync result to the project model");
+
     public AppSettingsComponent() {
         TextFieldWithBrowseButton textFieldWithBrowseButton = new TextFieldWithBrowseButton(distributionPathText);
         JPanel distributionPanel = UI.PanelFactory.panel(textFieldWithBrowseButton)
@@ -51,9 +71,43 @@ public class AppSettingsComponent {
                 .withLabel("Install distribution:")
                 .withComment("Install a Jeka distribution from Maven central repository.")
                 .createPanel();
+        JPanel syncParallelismPanel = UI.PanelFactory.panel(syncParallelismSpinner)
+                .withLabel("Sync parallelism:")
+                .withComment("Max number of modules synchronized concurrently. 0 means number of available cores.")
+                .createPanel();
+        JPanel useSyncDaemonPanel = UI.PanelFactory.panel(useSyncDaemonCheckBox)
+                .withComment("Keep Jeka JVMs alive between syncs to save JVM startup and class loading." +
+                        "<br/>Falls back to a regular Jeka process when the JDK or Jeka version does not support it.")
+                .createPanel();
+        JPanel inProcessSyncPanel = UI.PanelFactory.panel(inProcessSyncCheckBox)
+                .withComment("Run iml generation within the IDE, using an isolated class loader per Jeka distribution." +
+                        "<br/>Falls back to a daemon or a regular Jeka process when the Jeka version does not support it," +
+                        "<br/>or when the module JDK differs from the IDE one. Experimental : def classes calling" +
+                        "<br/><i>System.exit</i> would stop the IDE.")
+                .createPanel();
+        JPanel projectModelSyncPanel = UI.PanelFactory.panel(projectModelSyncCheckBox)
+                .withComment("Update only the module roots and dependencies that changed, instead of reloading " +
+                        "the module<br/>from the iml file. Unchanged libraries and roots are not reindexed.")
+                .createPanel();
+        JPanel consoleBufferPanel = UI.PanelFactory.panel(consoleBufferSpinner)
+                .withLabel("Console buffer (KB):")
+                .withComment("Max amount of output kept in Jeka console. Older output remains available " +
+                        "in log files<br/>through the 'Open full log' link.")
+                .createPanel();
+        JPanel coordinateSearchTtlPanel = UI.PanelFactory.panel(coordinateSearchTtlSpinner)
+                .withLabel("Dependency search cache (hours):")
+                .withComment("How long dependency and version completions are served from cache before being " +
+                        "refreshed<br/>from the remote repository. Stale results are shown while refreshing.")
+                .createPanel();
         mainPanel = FormBuilder.createFormBuilder()
                 .addComponent(distributionPanel)
                 .addComponent(installPanel)
+                .addComponent(syncParallelismPanel)
+                .addComponent(useSyncDaemonPanel)
+                .addComponent(inProcessSyncPanel)
+                .addComponent(projectModelSyncPanel)
+                .addComponent(consoleBufferPanel)
+                .addComponent(coordinateSearchTtlPanel)
                 .addComponentFillVertically(new JPanel(), 0)
                 .getPanel();
     }
@@ -2,6 +2,8 @@ package dev.jeka.ide.intellij.panel;
 
 import com.google.common.base.Strings;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.editor.event.DocumentListener;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
@@ -17,10 +19,10 @@ import com.intellij.util.ui.FormBuilder;
 import com.intellij.util.ui.UI;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.ide.intellij.common.ModuleHelper;
-import dev.jeka.ide.intellij.engine.CmdJekaDoer;
+import dev.jeka.ide.intellij.common.model.KBeanModel;
+import dev.jeka.ide.intellij.engine.JekaSyncQueue;
+import dev.jeka.ide.intellij.engine.KBeanModelService;
 import dev.jeka.ide.intellij.extension.autocompletion.JekaCmdCompletionProvider;
-import dev.jeka.ide.intellij.panel.explorer.tree.BeanNode;
-import dev.jeka.ide.intellij.panel.explorer.tree.JekaToolWindowTreeService;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 
@@ -31,6 +33,7 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class RunFormPanel {
@@ -191,8 +194,8 @@ public class RunFormPanel {
                     return;
                 }
                 link.setEnabled(false);
-                CmdJekaDoer.getInstance(module.getProject()).generateIml(
-                    ModuleHelper.getModuleDirPath(module), null, true, module, this::update);
+                JekaSyncQueue.getInstance(module.getProject()).requestSync(
+                    ModuleHelper.getModuleDirPath(module), module, null, true, this::update);
             });
             this.add(link);
             this.setVisible(false);
@@ -317,7 +320,7 @@ public class RunFormPanel {
 
     private class BehaviorPanel extends JBPanel {
 
-        private ComboBox<BeanNode> kb;
+        private ComboBox<KBeanModel> kb;
 
         private JBCheckBox cwCb = new JBCheckBox("clean.work (-cw)");
 
@@ -351,7 +354,7 @@ public class RunFormPanel {
                 if (!updateCmd) {
                     return;
                 }
-                BeanNode selectedValue = kb.getItem();
+                KBeanModel selectedValue = kb.getItem();
                 if (selectedValue != null) {
                     adaptText("kb", selectedValue.getName());
                 } else {
@@ -384,19 +387,25 @@ public class RunFormPanel {
             if (module == null) {
                 return;
             }
-            updateKbeans(module);  // this is for sync only
-
-            // the following code is not async
-            //ProgressManager.getInstance().runProcess(() -> updateKbeans(module), ProgressIndicatorProvider.getGlobalProgressIndicator());
+            KBeanModelService kbeanModelService = KBeanModelService.getInstance(module.getProject());
+            updateKbeans(kbeanModelService.getKBeans(module));
+
+            // the snapshot may be stale or not computed yet : refill once the fresh one is available
+            CompletableFuture<List<KBeanModel>> freshKBeans = kbeanModelService.getKBeansAsync(module);
+            if (!freshKBeans.isDone()) {
+                freshKBeans.thenAccept(kbeans -> ApplicationManager.getApplication().invokeLater(() -> {
+                    updateCmd = false;
+                    updateKbeans(kbeans);
+                    updateCmd = true;
+                    sync(cmdEditorTextField.getText());
+                }, ModalityState.stateForComponent(kb)));
+            }
         }
 
-        private void updateKbeans(Module module) {
-            BeanNode currentValue = kb.getItem();
+        private void updateKbeans(List<KBeanModel> kbeans) {
+            KBeanModel currentValue = kb.getItem();
             kb.removeAllItems();
-            List<BeanNode> valueList = new LinkedList<>();
-
-            JekaToolWindowTreeService treeService = module.getProject().getService(JekaToolWindowTreeService.class);
-            List<BeanNode> kbeans = treeService.getKbeans(module);
+            List<KBeanModel> valueList = new LinkedList<>();
             valueList.add(null);
             valueList.addAll(kbeans);
             valueList.forEach(item -> kb.addItem(item));
@@ -481,15 +490,15 @@ public class RunFormPanel {
         public Component getListCellRendererComponent(JList list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
             JLabel original = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
             original.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
-            BeanNode beanNode = (BeanNode) value;
-            if (beanNode == null) {
+            KBeanModel kbean = (KBeanModel) value;
+            if (kbean == null) {
                 original.setText("default");
                 return original;
-            } else if (!beanNode.isLocal()) {
+            } else if (!kbean.isLocal()) {
                 original.setForeground(Color.GRAY);
             }
-            String name = Strings.padEnd(beanNode.getName(), 18, ' ');
-            original.setText(name + "      " + beanNode.getClassName());
+            String name = Strings.padEnd(kbean.getName(), 18, ' ');
+            original.setText(name + "      " + kbean.getClassName());
             return original;
         }
     }
@@ -0,0 +1,152 @@
+package dev.jeka.ide.intellij.panel;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.JBTable;
+import dev.jeka.ide.intellij.engine.telemetry.SyncPhase;
+import dev.jeka.ide.intellij.engine.telemetry.SyncRecord;
+import dev.jeka.ide.intellij.engine.telemetry.SyncStatistics;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shows p50/p95 timings per phase of Jeka operations run during the session, along with the detail of
+ * each operation.
+ */
+public class SyncStatisticsPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final Project project;
+
+    private final DefaultTableModel summaryModel = readOnlyModel("Phase", "Count", "p50 (ms)", "p95 (ms)");
+
+    private final DefaultTableModel recordModel;
+
+    public SyncStatisticsPanel(Project project) {
+        super(true, true);
+        this.project = project;
+        Object[] recordColumns = new Object[SyncPhase.values().length + 5];
+        recordColumns[0] = "Time";
+        recordColumns[1] = "Module";
+        recordColumns[2] = "Operation";
+        recordColumns[3] = "Engine";
+        recordColumns[4] = "Result";
+        for (SyncPhase phase : SyncPhase.values()) {
+            recordColumns[phase.ordinal() + 5] = phase.getLabel();
+        }
+        recordModel = readOnlyModel(recordColumns);
+
+        JBSplitter splitter = new JBSplitter(true, 0.35f);
+        splitter.setFirstComponent(ScrollPaneFactory.createScrollPane(new JBTable(summaryModel)));
+        splitter.setSecondComponent(ScrollPaneFactory.createScrollPane(new JBTable(recordModel)));
+        setContent(splitter);
+        setToolbar(createToolbar());
+
+        SyncStatistics.getInstance(project).addListener(
+                () -> ApplicationManager.getApplication().invokeLater(this::refresh, project.getDisposed()), this);
+        refresh();
+    }
+
+    private JComponent createToolbar() {
+        DefaultActionGroup actionGroup = new DefaultActionGroup();
+        actionGroup.add(DumbAwareAction.create("Export as CSV", AllIcons.ToolbarDecorator.Export,
+                event -> export("csv", SyncStatistics::toCsv)));
+        actionGroup.add(DumbAwareAction.create("Export as JSON", AllIcons.FileTypes.Json,
+                event -> export("json", SyncStatistics::toJson)));
+        actionGroup.add(DumbAwareAction.create("Clear", AllIcons.Actions.GC, event -> {
+            SyncStatistics.getInstance(project).clear();
+            refresh();
+        }));
+        ActionToolbar actionToolbar = ActionManager.getInstance()
+                .createActionToolbar("JEKA_SYNC_STATISTICS_TOOLBAR", actionGroup, true);
+        actionToolbar.setTargetComponent(this);
+        return actionToolbar.getComponent();
+    }
+
+    private void refresh() {
+        List<SyncRecord> records = SyncStatistics.getInstance(project).getRecords();
+        summaryModel.setRowCount(0);
+        for (SyncPhase phase : SyncPhase.values()) {
+            summaryModel.addRow(new Object[] {phase.getLabel(),
+                    SyncStatistics.count(records, phase),
+                    format(SyncStatistics.percentile(records, phase, 50)),
+                    format(SyncStatistics.percentile(records, phase, 95))});
+        }
+        recordModel.setRowCount(0);
+        for (int i = records.size() - 1; i >= 0; i--) {  // most recent first
+            SyncRecord record = records.get(i);
+            Object[] row = new Object[SyncPhase.values().length + 5];
+            row[0] = TIME_FORMATTER.format(record.getStartTime());
+            row[1] = record.getModuleName();
+            row[2] = record.getOperation();
+            row[3] = record.getEngine();
+            row[4] = record.isSuccess() ? "success" : "failure";
+            for (SyncPhase phase : SyncPhase.values()) {
+                row[phase.ordinal() + 5] = record.getDuration(phase);
+            }
+            recordModel.addRow(row);
+        }
+    }
+
+    private void export(String extension, Function<List<SyncRecord>, String> formatter) {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Sync Statistics",
+                "Export timings of Jeka operations", extension);
+        VirtualFileWrapper target = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project)
+                .save("jeka-sync-statistics." + extension);
+        if (target == null) {
+            return;
+        }
+        String content = formatter.apply(SyncStatistics.getInstance(project).getRecords());
+        try {
+            Files.writeString(target.getFile().toPath(), content, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            NotificationGroupManager.getInstance()
+                    .getNotificationGroup("jeka.notifGroup")
+                    .createNotification("Cannot export sync statistics : " + e.getMessage(), NotificationType.ERROR)
+                    .notify(project);
+        }
+    }
+
+    private static String format(long millis) {
+        return millis < 0 ? "-" : Long.toString(millis);
+    }
+
+    private static DefaultTableModel readOnlyModel(Object... columns) {
+        return new DefaultTableModel(columns, 0) {
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+}
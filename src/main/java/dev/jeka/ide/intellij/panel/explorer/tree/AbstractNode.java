@@ -7,6 +7,7 @@ import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.ui.ColoredTreeCellRenderer;
 import com.intellij.ui.treeStructure.Tree;
 import lombok.Value;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
@@ -44,6 +45,10 @@ public abstract class AbstractNode extends DefaultMutableTreeNode {
         return null;
     }
 
+    // Nodes with costly children override this to load them on first expansion
+    void onWillExpand() {
+    }
+
     public final <T> T getCloserParentOfType(Class<T> clazz) {
         return getCloserParentOfType(clazz, this);
     }
@@ -67,6 +72,32 @@ public abstract class AbstractNode extends DefaultMutableTreeNode {
         treeModel.nodeStructureChanged(this);
     }
 
+    // Returns the model of the tree this node is attached to, if any
+    @Nullable
+    DefaultTreeModel treeModel() {
+        return getRoot() instanceof RootNode rootNode ? rootNode.getDefaultTreeModel() : null;
+    }
+
+    // Inserts the specified child, notifying the tree model of this single insertion
+    void insertChild(AbstractNode child, int index) {
+        DefaultTreeModel treeModel = treeModel();
+        if (treeModel == null) {
+            insert(child, index);
+        } else {
+            treeModel.insertNodeInto(child, this, index);
+        }
+    }
+
+    // Removes the specified child, notifying the tree model of this single removal
+    void removeChild(AbstractNode child) {
+        DefaultTreeModel treeModel = treeModel();
+        if (treeModel == null) {
+            remove(child);
+        } else {
+            treeModel.removeNodeFromParent(child);
+        }
+    }
+
     TreePath getTreePath() {
         return new TreePath(this.getPath());
     }
@@ -4,79 +4,54 @@ import com.intellij.openapi.actionSystem.ActionManager;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.actionSystem.IdeActions;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.*;
-import com.intellij.psi.impl.source.resolve.reference.impl.providers.JavaClassReference;
+import com.intellij.pom.Navigatable;
 import com.intellij.ui.ColoredTreeCellRenderer;
-import dev.jeka.core.api.utils.JkUtilsIterable;
-import dev.jeka.core.api.utils.JkUtilsString;
-import dev.jeka.core.tool.JkExternalToolApi;
-import dev.jeka.ide.intellij.common.PsiClassHelper;
-import dev.jeka.ide.intellij.common.PsiMethodHelper;
+import dev.jeka.ide.intellij.common.model.KBeanMembers;
+import dev.jeka.ide.intellij.common.model.KBeanModel;
 import dev.jeka.ide.intellij.common.model.NavigableProxy;
+import dev.jeka.ide.intellij.engine.KBeanModelService;
 import icons.JekaIcons;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class BeanNode extends AbstractNode implements Comparable<BeanNode> {
 
-    public static final List<String> UNPRIORIZEDS = JkUtilsIterable.listOf("nexus", "maven", "intellij",
-            "eclipse", "git", "scaffold");
-
     public static final Icon ICON = JekaIcons.KBEAN;
 
     @Getter
-    private final JavaClassReference psiClass;
-
-    @Getter
-    private final String name;
+    private final KBeanModel model;
 
-    @Getter
-    private final String className;
-
-    @Getter
-    private final String tooltipText;
+    private boolean membersRequested;
 
-    @Getter
-    private final String definition;
+    public BeanNode(Project project, KBeanModel model) {
+        super(project);
+        this.model = model;
+        this.add(new LoadingNode(project));
+    }
 
-    @Getter
-    private final boolean local;
+    public String getName() {
+        return model.getName();
+    }
 
-    public BeanNode(Project project, PsiClass psiClass, boolean local) {
-        super(project);
-        this.psiClass = (JavaClassReference) psiClass.getReference();
-        createMethodNodes2(psiClass).forEach(this::add);
-        createFieldNodes(psiClass).forEach(this::add);
-        createNestedBeanNodes(psiClass).forEach(this::add);
-        name = JkExternalToolApi.getBeanName(psiClass.getQualifiedName());
-        className = psiClass.getQualifiedName();
-        String tooltipContent = "<b>" + psiClass.getQualifiedName() + "</b><";
-        String doc = PsiClassHelper.getFormattedJkDoc(psiClass);
-        if (!JkUtilsString.isBlank(doc)) {
-            tooltipContent = tooltipContent + "<br/>" + doc;
-        }
-        definition = doc;
-        tooltipText = tooltipContent;
-        this.local = local;
+    public String getClassName() {
+        return model.getClassName();
     }
 
     @Override
     public String toString() {
-        return name;
+        return getName();
     }
 
     @Override
     public void customizeCellRenderer(ColoredTreeCellRenderer coloredTreeCellRenderer) {
         coloredTreeCellRenderer.setIcon(ICON);
-        coloredTreeCellRenderer.setToolTipText(tooltipText);
+        coloredTreeCellRenderer.setToolTipText(model.getTooltipText());
     }
 
     @Override
@@ -84,44 +59,83 @@ public class BeanNode extends AbstractNode implements Comparable<BeanNode> {
         group.add(ActionManager.getInstance().getAction(IdeActions.ACTION_EDIT_SOURCE));
     }
 
-    private List<MethodNode> createMethodNodes2(PsiClass psiClass) {
-        return Arrays.stream(psiClass.getAllMethods())
-                .filter(PsiMethodHelper::isInstancePublicVoidNoArgsNotFromObject)
-                .sorted( (m1,m2) -> m1.getContainingClass().isInheritor(m2.getContainingClass(), true)
-                        ? 1
-                        : 0)
-                .map(psiMethod -> new MethodNode(project, psiMethod))
-                .distinct()
-                .collect(Collectors.toList());
+    @Override
+    public Object getActionData(String dataId) {
+        if (CommonDataKeys.NAVIGATABLE.is(dataId) && model.getPointer().getElement() instanceof Navigatable navigatable) {
+            return new NavigableProxy(navigatable);
+        }
+        return null;
+    }
+
+    @Override
+    void onWillExpand() {
+        ModuleNode moduleNode = getCloserParentOfType(ModuleNode.class);
+        if (membersRequested || moduleNode == null) {
+            return;
+        }
+        membersRequested = true;
+        KBeanModelService.getInstance(project).getMembersAsync(moduleNode.getModule(), model)
+                .whenComplete((members, error) -> ApplicationManager.getApplication().invokeLater(() -> {
+                    if (error != null) {
+                        membersRequested = false;  // retried on next expansion
+                    } else {
+                        setMembers(members);
+                    }
+                }, project.getDisposed()));
     }
 
-    private List<FieldNode> createFieldNodes(PsiClass psiClass) {
-        return FieldNode.createFieldNodes(project, psiClass);
+    private void setMembers(KBeanMembers members) {
+        removeAllChildren();
+        members.getMethods().forEach(method -> add(new MethodNode(project, method)));
+        members.getFields().forEach(field -> add(new FieldNode(project, field)));
+        members.getNestedKBeans().forEach(nestedKBean -> add(new BeanNode(project, nestedKBean)));
+        if (getRoot() instanceof RootNode) {   // still attached to the tree
+            refresh();
+        }
     }
 
-    private List<BeanNode> createNestedBeanNodes(PsiClass psiClass) {
-        PsiField[] psiFields = psiClass.getAllFields();
-        List<BeanNode> result = new LinkedList<>();
-        for (PsiField psiField : psiFields) {
-            if (psiField.getModifierList().hasExplicitModifier("private")) {
+    /**
+     * Makes the children of the specified parent, from the specified index, be nodes for the specified KBeans.
+     * Nodes of KBeans that are neither dirty nor changed are kept, preserving their expansion state. The tree
+     * model is notified of each single insertion and removal.
+     */
+    static void updateBeanNodes(AbstractNode parent, int fromIndex, List<KBeanModel> kbeans,
+                                Set<String> dirtyClassNames) {
+        Map<String, BeanNode> existingNodes = new HashMap<>();
+        for (int i = fromIndex; i < parent.getChildCount(); i++) {
+            if (parent.getChildAt(i) instanceof BeanNode beanNode) {
+                existingNodes.put(beanNode.getClassName(), beanNode);
+            }
+        }
+        Set<String> classNames = kbeans.stream().map(KBeanModel::getClassName).collect(Collectors.toSet());
+        existingNodes.values().stream()
+                .filter(beanNode -> !classNames.contains(beanNode.getClassName()))
+                .forEach(parent::removeChild);
+        int index = fromIndex;
+        for (KBeanModel kbean : kbeans) {
+            BeanNode existingNode = existingNodes.get(kbean.getClassName());
+            boolean reusable = existingNode != null && !dirtyClassNames.contains(kbean.getClassName())
+                    && isSameDescription(existingNode.model, kbean);
+            if (reusable && parent.getIndex(existingNode) == index) {
+                index++;
                 continue;
             }
-            PsiType psiType = psiField.getType();
-            if (psiType instanceof PsiClassType) {
-                PsiClassType classType = (PsiClassType) psiType;
-                PsiClass childPsiClass = classType.resolve();
-                if (PsiClassHelper.isExtendingJkBean(childPsiClass)) {
-                    BeanNode beanNode = new BeanNode(project, childPsiClass, false);
-                    result.add(beanNode);
-                }
+            if (existingNode != null && existingNode.getParent() == parent) {
+                parent.removeChild(existingNode);
             }
+            parent.insertChild(reusable ? existingNode : new BeanNode(parent.project, kbean), index++);
         }
-        return result;
+    }
+
+    private static boolean isSameDescription(KBeanModel kbean, KBeanModel other) {
+        return kbean.getName().equals(other.getName())
+                && kbean.isLocal() == other.isLocal()
+                && Objects.equals(kbean.getTooltipText(), other.getTooltipText());
     }
 
     @Override
     public int compareTo(@NotNull BeanNode o) {
-        return this.name.compareTo(o.name);
+        return getName().compareTo(o.getName());
     }
 
     @Override
@@ -129,11 +143,11 @@ public class BeanNode extends AbstractNode implements Comparable<BeanNode> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         BeanNode beanNode = (BeanNode) o;
-        return className.equals(beanNode.className);
+        return getClassName().equals(beanNode.getClassName());
     }
 
     @Override
     public int hashCode() {
-        return className.hashCode();
+        return getClassName().hashCode();
     }
 }
@@ -29,6 +29,10 @@ public class CmdNode extends AbstractNode implements Comparable<CmdNode> {
         return name;
     }
 
+    boolean isSameAs(CmdNode other) {
+        return name.equals(other.name) && cmd.equals(other.cmd);
+    }
+
     @Override
     public void customizeCellRenderer(ColoredTreeCellRenderer coloredTreeCellRenderer) {
         coloredTreeCellRenderer.setIcon(JekaIcons.CMD);
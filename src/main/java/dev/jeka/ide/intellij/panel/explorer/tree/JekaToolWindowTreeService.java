@@ -3,6 +3,7 @@ package dev.jeka.ide.intellij.panel.explorer.tree;
 import com.intellij.ProjectTopics;
 import com.intellij.ide.DataManager;
 import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.ModuleListener;
@@ -15,13 +16,15 @@ import com.intellij.ui.PopupHandler;
 import com.intellij.ui.treeStructure.Tree;
 import com.intellij.util.EditSourceOnDoubleClickHandler;
 import com.intellij.util.Function;
-import com.intellij.util.SlowOperations;
 import com.intellij.util.ui.tree.TreeUtil;
+import dev.jeka.ide.intellij.engine.KBeanModelService;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.plaf.TreeUI;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
@@ -29,7 +32,6 @@ import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import java.awt.*;
 import java.awt.event.MouseEvent;
-import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
@@ -86,6 +88,21 @@ public final class JekaToolWindowTreeService {
             }
         }.installOn(tree);
 
+        // load costly children on first expansion
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                if (event.getPath().getLastPathComponent() instanceof AbstractNode node) {
+                    node.onWillExpand();
+                }
+            }
+
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+            }
+        });
+
         // handle VSF change
         project.getMessageBus().connect().subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
 
@@ -94,7 +111,7 @@ public final class JekaToolWindowTreeService {
                 if (!listen) {
                     return;
                 }
-                SlowOperations.allowSlowOperations(() -> rootNode.onFileEvents(events));
+                rootNode.onFileEvents(events);
 
                 }
         });
@@ -127,6 +144,16 @@ public final class JekaToolWindowTreeService {
             }
         });
 
+        // handle KBean model change
+        KBeanModelService.getInstance(project).addListener(module ->
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    ModuleNode moduleNode = rootNode.getModuleNode(module);
+                    if (!listen || moduleNode == null) {
+                        return;
+                    }
+                    moduleNode.onKBeansChanged();
+                }, project.getDisposed()));
+
         rootNode.reloadModules(null);
         return tree;
     }
@@ -155,15 +182,6 @@ public final class JekaToolWindowTreeService {
        //expandedNodes.forEach(treePath -> tree.expandPath(treePath));
     }
 
-    public List<BeanNode> getKbeans(Module module) {
-        RootNode rootNode = (RootNode) getTree().getModel().getRoot();
-        ModuleNode moduleNode = rootNode.getModuleNode(module);
-        if (moduleNode == null) {
-            return Collections.emptyList();
-        }
-        return moduleNode.kbeans();
-    }
-
     public static class CellRenderer extends ColoredTreeCellRenderer {
 
         @Override
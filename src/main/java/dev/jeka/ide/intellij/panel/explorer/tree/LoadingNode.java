@@ -0,0 +1,27 @@
+package dev.jeka.ide.intellij.panel.explorer.tree;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.ColoredTreeCellRenderer;
+
+/**
+ * Placeholder child displayed while the actual children of a node are being loaded.
+ */
+class LoadingNode extends AbstractNode {
+
+    LoadingNode(Project project) {
+        super(project);
+        this.setAllowsChildren(false);
+    }
+
+    @Override
+    public String toString() {
+        return "loading\u2026";
+    }
+
+    @Override
+    public void customizeCellRenderer(ColoredTreeCellRenderer coloredTreeCellRenderer) {
+        coloredTreeCellRenderer.setIcon(AllIcons.Process.Step_1);
+    }
+
+}
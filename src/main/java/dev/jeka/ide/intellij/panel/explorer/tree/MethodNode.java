@@ -2,11 +2,9 @@ package dev.jeka.ide.intellij.panel.explorer.tree;
 
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiMethod;
+import com.intellij.pom.Navigatable;
 import com.intellij.ui.ColoredTreeCellRenderer;
-import com.intellij.ui.treeStructure.Tree;
-import com.intellij.util.SlowOperations;
-import dev.jeka.ide.intellij.common.PsiClassHelper;
+import dev.jeka.ide.intellij.common.model.KBeanMethodModel;
 import dev.jeka.ide.intellij.common.model.NavigableProxy;
 import dev.jeka.ide.intellij.extension.action.JekaRunMethodAction;
 import dev.jeka.ide.intellij.extension.action.JekaRunMethodParamAction;
@@ -15,33 +13,28 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 import javax.swing.*;
-import javax.swing.tree.TreePath;
-import java.util.List;
 
 @EqualsAndHashCode(of = "name", callSuper = false)
 public class MethodNode extends AbstractNode {
 
     public static final Icon ICON = JekaIcons.COMMAND;
 
-    private final PsiMethod psiMethod;
+    @Getter
+    private final KBeanMethodModel model;
 
     private final String name;
 
-    @Getter
-    private final String tooltipText;
-
-    public MethodNode(Project project, PsiMethod psiMethod) {
+    public MethodNode(Project project, KBeanMethodModel model) {
         super(project);
-        this.psiMethod = psiMethod;
-        this.name = psiMethod.getName();
-        this.tooltipText = PsiClassHelper.getFormattedJkDoc(psiMethod);
+        this.model = model;
+        this.name = model.getName();
         this.setAllowsChildren(false);
     }
 
     @Override
     public void customizeCellRenderer(ColoredTreeCellRenderer coloredTreeCellRenderer) {
         coloredTreeCellRenderer.setIcon(ICON);
-        coloredTreeCellRenderer.setToolTipText(tooltipText);
+        coloredTreeCellRenderer.setToolTipText(model.getTooltipText());
     }
 
     @Override
@@ -60,8 +53,8 @@ public class MethodNode extends AbstractNode {
 
     @Override
     public Object getActionData(String dataId) {
-        if (CommonDataKeys.NAVIGATABLE.is(dataId)) {
-            return new NavigableProxy(psiMethod);
+        if (CommonDataKeys.NAVIGATABLE.is(dataId) && model.getPointer().getElement() instanceof Navigatable navigatable) {
+            return new NavigableProxy(navigatable);
         }
         if (JekaRunMethodAction.MethodInfo.KEY.is(dataId)) {
             BeanNode parent = (BeanNode) this.getParent();
@@ -3,19 +3,20 @@ package dev.jeka.ide.intellij.panel.explorer.tree;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.ui.ColoredTreeCellRenderer;
-import com.intellij.util.SlowOperations;
-import dev.jeka.core.api.utils.JkUtilsIterable;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import dev.jeka.core.api.utils.JkUtilsString;
-import dev.jeka.core.tool.JkBean;
 import dev.jeka.core.tool.JkConstants;
 import dev.jeka.core.tool.JkExternalToolApi;
 import dev.jeka.ide.intellij.common.ModuleHelper;
-import dev.jeka.ide.intellij.common.PsiClassHelper;
+import dev.jeka.ide.intellij.common.model.KBeanModel;
+import dev.jeka.ide.intellij.engine.KBeanModelService;
 import dev.jeka.ide.intellij.extension.action.ScaffoldAction;
 import dev.jeka.ide.intellij.extension.action.SyncImlAction;
 import dev.jeka.ide.intellij.panel.explorer.action.ShowRuntimeInformationAction;
@@ -23,6 +24,7 @@ import lombok.Getter;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -31,21 +33,64 @@ public class ModuleNode extends AbstractNode {
     @Getter
     private final Module module;
 
-    public ModuleNode(Module module) {
+    // Class names of KBeans whose source has changed since the last snapshot
+    private final Set<String> dirtyClassNames = new HashSet<>();
+
+    @Nullable
+    private String defaultKBean;
+
+    /**
+     * Creates a node for the specified module, filled with the specified model computed beforehand.
+     */
+    ModuleNode(Module module, Model model) {
         super(module.getProject());
         this.module = module;
-        load();
+        apply(model);
     }
 
-    void load() {
-        this.removeAllChildren();
-        createCmdChildren().forEach(this::add);
-        List<BeanNode> beanNodes = createBeanNodes();
-        beanNodes.forEach(this::add);
-        Set<String> names = beanNodes.stream()
-                .map(beanNode -> beanNode.getClassName())
-                .collect(Collectors.toSet());
-        this.add(new BeanBoxNode(project, ModuleHelper.getModuleDirPath(module), names));
+    /**
+     * Reads, in the calling thread, what the node of the specified module displays. Meant to be called in a
+     * background read action, as it reads files and may compute KBeans.
+     */
+    static Model computeModel(Module module) {
+        Path moduleDir = ModuleHelper.getModuleDirPath(module);
+        Map<String, String> commands = JkExternalToolApi.getCmdShortcutsProperties(moduleDir);
+        String defaultKBean = JkExternalToolApi.getProperties(moduleDir).get("jeka.default.kbean");
+        return new Model(
+                KBeanModelService.getInstance(module.getProject()).getKBeans(module),
+                Collections.unmodifiableMap(new LinkedHashMap<>(commands)),
+                JkUtilsString.isBlank(defaultKBean) ? null : defaultKBean);
+    }
+
+    /**
+     * Recomputes the model of this node in background, then applies it on the EDT. A pending recomputation is
+     * cancelled by a newer one, and restarted after PSI changes.
+     */
+    void reload() {
+        ReadAction.nonBlocking(() -> computeModel(module))
+                .inSmartMode(project)
+                .expireWith(module)
+                .coalesceBy(this, module)
+                .finishOnUiThread(ModalityState.defaultModalityState(), model -> {
+                    if (!module.isDisposed()) {
+                        apply(model);
+                    }
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private void apply(Model model) {
+        defaultKBean = model.defaultKBean;
+        updateCmdNodes(model.commands);
+        updateKBeanNodes(model.kbeans, Set.of());
+    }
+
+    /**
+     * Updates KBean nodes from the latest snapshot, rebuilding the ones whose source has changed.
+     */
+    void onKBeansChanged() {
+        updateKBeanNodes(KBeanModelService.getInstance(project).getKBeans(module), dirtyClassNames);
+        dirtyClassNames.clear();
     }
 
     @Override
@@ -91,92 +136,149 @@ public class ModuleNode extends AbstractNode {
         return moduleDir.findChild(JkConstants.JEKA_DIR).findChild(JkConstants.PROPERTIES_FILE);
     }
 
-    List<CmdNode> createCmdChildren() {
-        Path baseDir = ModuleHelper.getModuleDirPath(module);
-        Map<String, String> commands = JkExternalToolApi.getCmdShortcutsProperties(baseDir);
-        return commands.entrySet().stream()
-                .map(entry -> new CmdNode(project, entry.getKey(), entry.getValue()))
-                .collect(Collectors.toCollection(() -> new LinkedList<>()));
+    /**
+     * Returns the dirs containing the files this node reacts to : the jeka dir and the work dir.
+     */
+    List<Path> getWatchedDirs() {
+        Path jekaDirPath = ModuleHelper.getModuleDirPath(module).resolve(JkConstants.JEKA_DIR);
+        return List.of(jekaDirPath, jekaDirPath.getParent().resolve(JkConstants.WORK_PATH));
     }
 
     @Override
     protected void onFileEvents(List<? extends VFileEvent> fileEvents) {
         Path modulePath = ModuleHelper.getModuleDirPath(module);
         Path jekaDirPath = modulePath.resolve(JkConstants.JEKA_DIR);
-        boolean mustRecompute = fileEvents.stream()
+        List<Path> files = fileEvents.stream()
                 .filter(fileEvent -> fileEvent.getFileSystem().getProtocol().equals("file"))
-                .map(fileEvent -> fileEvent.getFile().toNioPath())
-                .anyMatch(file -> mustRecompute(jekaDirPath, file));
-        if (mustRecompute) {
-            removeAllChildren();
-            DumbService.getInstance(project).smartInvokeLater(() -> {
-                SlowOperations.allowSlowOperations(() -> {
-                    removeAllChildren();
-                    load();
-                    refresh();
-                });
-            });
+                .map(fileEvent -> Paths.get(fileEvent.getPath()))
+                .toList();
+        if (files.stream().anyMatch(file -> file.equals(jekaDirPath.resolve(JkConstants.PROPERTIES_FILE)))) {
+            reload();
+        }
+        List<Path> sourceFiles = files.stream()
+                .filter(file -> isDefSource(jekaDirPath, file))
+                .toList();
+        boolean kbeanCacheChanged = files.stream().anyMatch(file -> isKBeanCacheFile(jekaDirPath, file));
+        if (sourceFiles.isEmpty() && !kbeanCacheChanged) {
+            return;
+        }
+        markDirty(sourceFiles);
+
+        // Let the KBean model service take these changes in account before asking for a fresh snapshot.
+        // Nodes are updated once it is available.
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (!module.isDisposed()) {
+                KBeanModelService.getInstance(project).getKBeans(module);
+            }
+        }, project.getDisposed());
+    }
+
+    // Changes to the cmd shortcuts only replace the cmd nodes that differ
+    private void updateCmdNodes(Map<String, String> commands) {
+        List<CmdNode> cmdNodes = commands.entrySet().stream()
+                .map(entry -> new CmdNode(project, entry.getKey(), entry.getValue()))
+                .toList();
+        List<CmdNode> existingNodes = childrenOf(this, CmdNode.class);
+        existingNodes.stream()
+                .filter(existingNode -> cmdNodes.stream().noneMatch(existingNode::isSameAs))
+                .forEach(this::removeChild);
+        int index = 0;
+        for (CmdNode cmdNode : cmdNodes) {
+            if (index < getChildCount() && getChildAt(index) instanceof CmdNode existingNode
+                    && existingNode.isSameAs(cmdNode)) {
+                index++;
+                continue;
+            }
+            insertChild(cmdNode, index++);
+        }
 
+        // Remaining cmd nodes are duplicates coming from a reordering
+        while (index < getChildCount() && getChildAt(index) instanceof CmdNode extraNode) {
+            removeChild(extraNode);
+        }
+    }
+
+    // Local KBeans and the default one come right after cmd nodes, then the box of classpath KBeans
+    private void updateKBeanNodes(List<KBeanModel> kbeans, Set<String> dirtyClassNames) {
+        List<KBeanModel> directKBeans = directKBeans(kbeans);
+        int fromIndex = childrenOf(this, CmdNode.class).size();
+        BeanNode.updateBeanNodes(this, fromIndex, directKBeans, dirtyClassNames);
+        Set<String> directClassNames = directKBeans.stream()
+                .map(KBeanModel::getClassName)
+                .collect(Collectors.toSet());
+        List<KBeanModel> classpathKBeans = kbeans.stream()
+                .filter(kbean -> !kbean.isLocal())
+                .filter(kbean -> !directClassNames.contains(kbean.getClassName()))
+                .toList();
+        BeanBoxNode beanBoxNode = childrenOf(this, BeanBoxNode.class).stream().findFirst().orElse(null);
+        if (beanBoxNode == null) {
+            beanBoxNode = new BeanBoxNode(project, List.of());
+            insertChild(beanBoxNode, fromIndex + directKBeans.size());
         }
+        BeanNode.updateBeanNodes(beanBoxNode, 0, classpathKBeans, dirtyClassNames);
     }
 
-    private List<BeanNode> createBeanNodes() {
-        final List<BeanNode> result = new LinkedList<>();
-        List<BeanNode> localBeans  = PsiClassHelper.findLocalBeanClasses(module).stream()
-                .map(beanClass -> new BeanNode(project, beanClass, true))
-                .collect(Collectors.toList());
-        result.addAll(localBeans);
+    private List<KBeanModel> directKBeans(List<KBeanModel> kbeans) {
+        final List<KBeanModel> result = kbeans.stream()
+                .filter(KBeanModel::isLocal)
+                .collect(Collectors.toCollection(LinkedList::new));
 
         // Add the default kbean if any specified
-        Path moduleDir = ModuleHelper.getModuleDirPath(module);
-        String defaultBean = JkExternalToolApi.getProperties(moduleDir).get("jeka.default.kbean");
-        if (!JkUtilsString.isBlank(defaultBean)) {
-            List<String> localBeanNames = localBeans.stream().map(BeanNode::getName).toList();
-            Optional<BeanNode> defaultBeanNode = JkExternalToolApi.getCachedBeanClassNames(moduleDir).stream()
-                    .filter(className -> JkExternalToolApi.kbeanNameMatches(className, defaultBean))
-                    .filter(className -> !localBeanNames.contains(className))
-                    .map(className -> PsiClassHelper.getPsiClass(project, className))
-                    .filter(Objects::nonNull)
-                    .map(psiClass -> new BeanNode(project, psiClass, false))
-                    .findFirst();
-            defaultBeanNode.ifPresent(beanNode -> result.add(beanNode));
+        if (defaultKBean != null) {
+            kbeans.stream()
+                    .filter(kbean -> !kbean.isLocal())
+                    .filter(kbean -> JkExternalToolApi.kbeanNameMatches(kbean.getClassName(), defaultKBean))
+                    .findFirst()
+                    .ifPresent(result::add);
         }
         return result;
     }
 
-    private static boolean mustRecompute(Path jekaDir, Path file) {
-        if (file.equals(jekaDir.getParent().resolve(JkConstants.WORK_PATH)
-                .resolve(JkConstants.KBEAN_CLASSES_CACHE_FILE_NAME))) {
-            return true;
-        }
-        if (!file.startsWith(jekaDir)) {
-            return false;
+    // A changed source that declares no known KBean may still be extended or used by local KBeans
+    private void markDirty(List<Path> sourceFiles) {
+        List<BeanNode> beanNodes = new LinkedList<>(childrenOf(this, BeanNode.class));
+        childrenOf(this, BeanBoxNode.class).forEach(box -> beanNodes.addAll(childrenOf(box, BeanNode.class)));
+        for (Path sourceFile : sourceFiles) {
+            List<BeanNode> declaringNodes = beanNodes.stream()
+                    .filter(beanNode -> sourceFile.equals(sourcePath(beanNode)))
+                    .toList();
+            if (declaringNodes.isEmpty()) {
+                beanNodes.stream()
+                        .filter(beanNode -> beanNode.getModel().isLocal())
+                        .forEach(beanNode -> dirtyClassNames.add(beanNode.getClassName()));
+            } else {
+                declaringNodes.forEach(beanNode -> dirtyClassNames.add(beanNode.getClassName()));
+            }
         }
-        if (file.startsWith(jekaDir.resolve(JkConstants.PROPERTIES_FILE))) {
-            return true;
+    }
+
+    @Nullable
+    private static Path sourcePath(BeanNode beanNode) {
+        VirtualFile virtualFile = beanNode.getModel().getPointer().getVirtualFile();
+        if (virtualFile == null || !virtualFile.isInLocalFileSystem()) {
+            return null;
         }
-        if (file.startsWith(jekaDir.getParent().resolve(JkConstants.DEF_DIR))
-                && (file.toString().endsWith(".java") || file.toString().endsWith(".kt"))) {
-            return true;
+        return Paths.get(virtualFile.getPath());
+    }
+
+    private static <T> List<T> childrenOf(AbstractNode parent, Class<T> type) {
+        List<T> result = new LinkedList<>();
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            if (type.isInstance(parent.getChildAt(i))) {
+                result.add(type.cast(parent.getChildAt(i)));
+            }
         }
+        return result;
+    }
 
-        return false;
+    private static boolean isKBeanCacheFile(Path jekaDir, Path file) {
+        return file.equals(jekaDir.getParent().resolve(JkConstants.WORK_PATH)
+                .resolve(JkConstants.KBEAN_CLASSES_CACHE_FILE_NAME));
     }
 
-    List<BeanNode> kbeans() {
-        if (children == null) {
-            return new LinkedList<>();
-        }
-        List<BeanNode> defBeans = (List<BeanNode>) this.children.stream()
-                .filter(BeanNode.class::isInstance)
-                .map(BeanNode.class::cast)
-                .collect(Collectors.toList());
-        List<BeanNode> classpathBeans = (List<BeanNode>) this.children.stream()
-                .filter(BeanBoxNode.class::isInstance)
-                .map(BeanBoxNode.class::cast)
-                .flatMap(beanBoxNode -> ((BeanBoxNode)beanBoxNode).kbeans().stream())
-                .collect(Collectors.toList());
-        return JkUtilsIterable.concatLists(defBeans, classpathBeans);
+    private static boolean isDefSource(Path jekaDir, Path file) {
+        return file.startsWith(jekaDir.getParent().resolve(JkConstants.DEF_DIR))
+                && (file.toString().endsWith(".java") || file.toString().endsWith(".kt"));
     }
 
     List<ModuleNode> getDescendantModuleNodes() {
@@ -190,4 +292,10 @@ public class ModuleNode extends AbstractNode {
         }
         return result;
     }
+
+    /**
+     * Immutable content of a module node, computed off the EDT.
+     */
+    record Model(List<KBeanModel> kbeans, Map<String, String> commands, @Nullable String defaultKBean) {
+    }
 }
@@ -1,19 +1,22 @@
 package dev.jeka.ide.intellij.panel.explorer.tree;
 
-import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
-import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.ui.ColoredTreeCellRenderer;
 import com.intellij.ui.treeStructure.Tree;
-import com.intellij.util.SlowOperations;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.ui.tree.TreeUtil;
 import dev.jeka.ide.intellij.common.ModuleHelper;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
@@ -27,17 +30,22 @@ public class RootNode extends AbstractNode {
     @Getter(AccessLevel.PACKAGE)
     private DefaultTreeModel defaultTreeModel;
 
+    // Watched dirs, as '/' terminated system independent paths, mapped to the module node owning them
+    private final TreeMap<String, ModuleNode> moduleNodesByWatchedDir = new TreeMap<>();
+
     public RootNode(Project project) {
         super(project);
         this.removeAllChildren();
     }
 
-    private void load() {
-        ApplicationManager.getApplication().runReadAction(() -> {
-            for (Module module : modulePaths().values()) {
-                addModule(module);
-            }
-        });
+    // Computes models of all module nodes, in module path order, so that parent modules come first
+    private Map<Module, ModuleNode.Model> computeModuleModels() {
+        Map<Module, ModuleNode.Model> result = new LinkedHashMap<>();
+        for (Module module : modulePaths().values()) {
+            ProgressManager.checkCanceled();
+            result.put(module, ModuleNode.computeModel(module));
+        }
+        return result;
     }
 
     @Override
@@ -50,7 +58,7 @@ public class RootNode extends AbstractNode {
         // do nothing special as it is not displayed
     }
 
-    void addModule(Module module) {
+    void addModule(Module module, ModuleNode.Model model) {
         List<ModuleNode> addedModuleNodes = (List<ModuleNode>) Optional.ofNullable(children).orElse(new Vector<>()).stream()
                 .filter(ModuleNode.class::isInstance)
                 .map(ModuleNode.class::cast)
@@ -61,33 +69,74 @@ public class RootNode extends AbstractNode {
             Path addedModulePath = ModuleHelper.getModuleDirPath(addedModuleNode.getModule());
             Path modulePath = ModuleHelper.getModuleDirPath(module);
             if (modulePath.startsWith(addedModulePath)) {
-                ModuleNode moduleNode = new ModuleNode(module);
+                ModuleNode moduleNode = new ModuleNode(module, model);
                 addedModuleNode.add(moduleNode);
+                watch(moduleNode);
                 found = true;
                 break;
             }
         }
         if (!found) {
-            add(new ModuleNode(module));
+            ModuleNode moduleNode = new ModuleNode(module, model);
+            add(moduleNode);
+            watch(moduleNode);
+        }
+    }
+
+    private void watch(ModuleNode moduleNode) {
+        moduleNode.getWatchedDirs().forEach(dir ->
+                moduleNodesByWatchedDir.put(FileUtil.toSystemIndependentName(dir.toString()) + "/", moduleNode));
+    }
+
+    // Returns the module node owning the deepest watched dir containing the specified path. A watched dir
+    // containing the path is also a prefix of the common part of the path and of its floor key, so each
+    // lookup shortens the searched prefix.
+    @Nullable
+    private ModuleNode findModuleNode(String path) {
+        Map.Entry<String, ModuleNode> entry = moduleNodesByWatchedDir.floorEntry(path);
+        while (entry != null) {
+            String watchedDir = entry.getKey();
+            if (path.startsWith(watchedDir)) {
+                return entry.getValue();
+            }
+            String commonPrefix = path.substring(0, commonPrefixLength(path, watchedDir));
+            entry = moduleNodesByWatchedDir.floorEntry(commonPrefix);
         }
+        return null;
     }
 
+    private static int commonPrefixLength(String path, String other) {
+        int max = Math.min(path.length(), other.length());
+        int i = 0;
+        while (i < max && path.charAt(i) == other.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Recomputes module nodes in a background read action, then replaces the current ones on the EDT. A pending
+     * reload is cancelled by a newer one, and restarted after PSI changes.
+     */
     void reloadModules(Tree tree) {
-        DumbService.getInstance(project).smartInvokeLater(() -> {
-            SlowOperations.allowSlowOperations(() -> {
-                List<TreePath> treePaths = null;
-                if (tree != null) {
-                    treePaths = this.getExpandedTreePath(tree);
-                }
-                this.removeAllChildren();
-                load();
-                refresh();
-                if (tree != null) {
-                    treePaths.forEach(treePath -> TreeUtil.promiseExpand(tree, treePath));
-                }
-
-            });
-        });
+        ReadAction.nonBlocking(this::computeModuleModels)
+                .inSmartMode(project)
+                .expireWith(project)
+                .coalesceBy(this, project)
+                .finishOnUiThread(ModalityState.defaultModalityState(), moduleModels -> {
+                    List<TreePath> treePaths = null;
+                    if (tree != null) {
+                        treePaths = this.getExpandedTreePath(tree);
+                    }
+                    this.removeAllChildren();
+                    moduleNodesByWatchedDir.clear();
+                    moduleModels.forEach(this::addModule);
+                    refresh();
+                    if (tree != null) {
+                        treePaths.forEach(treePath -> TreeUtil.promiseExpand(tree, treePath));
+                    }
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
     }
 
     // find all Jeka modules sorted by paths
@@ -104,12 +153,20 @@ public class RootNode extends AbstractNode {
 
     @Override
     protected void onFileEvents(List<? extends VFileEvent> fileEvents) {
-        if (children == null) {
+        if (moduleNodesByWatchedDir.isEmpty()) {
             return;
         }
-        children.stream()
-                .map(AbstractNode.class::cast)
-                .forEach(child -> child.onFileEvents(fileEvents));
+        Map<ModuleNode, List<VFileEvent>> eventsByModuleNode = new LinkedHashMap<>();
+        for (VFileEvent fileEvent : fileEvents) {
+            if (!fileEvent.getFileSystem().getProtocol().equals("file")) {
+                continue;
+            }
+            ModuleNode moduleNode = findModuleNode(fileEvent.getPath());
+            if (moduleNode != null) {
+                eventsByModuleNode.computeIfAbsent(moduleNode, key -> new LinkedList<>()).add(fileEvent);
+            }
+        }
+        eventsByModuleNode.forEach(ModuleNode::onFileEvents);
     }
 
     ModuleNode getModuleNode(Module module) {